@@ -0,0 +1,72 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtrefs.liveperson.mcp.poc.auth.AppJwtService;
+import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService;
+import com.gtrefs.liveperson.mcp.poc.auth.InMemoryTokenStore;
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+/** Wires the production services by hand against a {@link LivePersonStub}, without starting Spring. */
+final class BenchmarkFixture implements AutoCloseable {
+
+    static final String ACCOUNT_ID = "12345678";
+
+    final LivePersonStub stub;
+    final LivePersonHttpClients httpClients;
+    final AppJwtService appJwtService;
+    final ConsumerJwsService consumerJwsService;
+    final ConversationRegistry conversations;
+    final LivePersonRestClient restClient;
+    final ConversationHistory history;
+    final Accounts accounts;
+    final ConversationTools tools;
+
+    BenchmarkFixture() throws IOException {
+        // Without Spring Boot's logging setup logback would print DEBUG to the console and drown the measurements
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        stub = new LivePersonStub();
+        var environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "lp.http.scheme", "http",
+                "lp.http.version", "HTTP_1_1")));
+        var meterRegistry = new SimpleMeterRegistry();
+
+        var upstreamMetrics = new UpstreamMetrics(meterRegistry);
+        var retry = new UpstreamRetry(meterRegistry, 3, 100, 2_000);
+        var tokenStore = new InMemoryTokenStore();
+
+        httpClients = new LivePersonHttpClients(RestClient.builder(), environment, meterRegistry);
+        appJwtService = new AppJwtService(httpClients, upstreamMetrics, retry, tokenStore, meterRegistry, ACCOUNT_ID, stub.domain(),
+                "client-id", "client-secret", 300, 1_000, 60_000);
+        consumerJwsService = new ConsumerJwsService(httpClients, upstreamMetrics, retry, meterRegistry, ACCOUNT_ID, stub.domain(),
+                10_000, 3_600, 60, appJwtService, tokenStore);
+        conversations = new ConversationRegistry(meterRegistry, 50_000, 1_800);
+        restClient = new LivePersonRestClient(httpClients, stub.domain(), ACCOUNT_ID, "benchmark", stub.domain(),
+                appJwtService, consumerJwsService, conversations, upstreamMetrics, retry);
+        history = new ConversationHistory(meterRegistry, 10_000, 200, 1_800, 1_000);
+        accounts = new Accounts(restClient, Optional.empty(), httpClients, upstreamMetrics, retry, tokenStore, conversations,
+                new ObjectMapper(), meterRegistry, environment, ACCOUNT_ID, 500, 900);
+        tools = new ConversationTools(accounts, conversations, history,
+                new IdempotencyCache(meterRegistry, 10_000, 600), new ConsumerProfileCache(meterRegistry, 10_000, 3_600),
+                8, 100);
+    }
+
+    @Override
+    public void close() {
+        stub.close();
+    }
+}
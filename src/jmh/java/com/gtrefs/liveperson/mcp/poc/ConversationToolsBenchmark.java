@@ -0,0 +1,90 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end tool calls through the real clients against the in-process {@link LivePersonStub}.
+ * Tokens are warm, so this measures our own overhead plus loopback HTTP, not LivePerson.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationToolsBenchmark {
+
+    private static final String CONSUMER_ID = "3b6f8f7e-0a7d-4c2b-9a49-6f1c2d3e4f50";
+
+    private BenchmarkFixture fixture;
+    private String conversationId;
+    private long profileVersion;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new BenchmarkFixture();
+        conversationId = fixture.tools.createConversation(
+                new ConversationTools.CreateConversationArgs(CONSUMER_ID, "Ada", "Lovelace", null, null)).conversationId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /** Returning consumer with an unchanged profile: the consumer PUT is skipped. */
+    @Benchmark
+    public ConversationTools.CreateConversationResult createConversation() {
+        return fixture.tools.createConversation(new ConversationTools.CreateConversationArgs(CONSUMER_ID, "Ada", "Lovelace", null, null));
+    }
+
+    /** Profile changes on every call, so each conversation is preceded by a consumer PUT. */
+    @Benchmark
+    public ConversationTools.CreateConversationResult createConversationChangedProfile() {
+        return fixture.tools.createConversation(new ConversationTools.CreateConversationArgs(CONSUMER_ID, "Ada",
+                "Lovelace-" + profileVersion++, null, null));
+    }
+
+    @Benchmark
+    public ConversationTools.SendMessageResult sendMessage() {
+        return fixture.tools.sendMessage(new ConversationTools.SendMessageArgs(CONSUMER_ID, conversationId, "Hello", null, null));
+    }
+
+    /** A client retry with the idempotency key of a completed call: answered from the cache, no upstream request. */
+    @Benchmark
+    public ConversationTools.SendMessageResult sendMessageReplayed() {
+        return fixture.tools.sendMessage(new ConversationTools.SendMessageArgs(CONSUMER_ID, conversationId, "Hello", "retry-1", null));
+    }
+
+    /** Closes a conversation opened for this invocation, whose ETag is known from its creation: a single PATCH. */
+    @Benchmark
+    public ConversationTools.CloseConversationResult closeConversation(OpenConversation open) {
+        return fixture.tools.closeConversation(new ConversationTools.CloseConversationArgs(CONSUMER_ID, open.conversationId, null, null));
+    }
+
+    /** A fresh conversation per invocation; closing the same one again would measure the 412 re-read instead. */
+    @State(Scope.Thread)
+    public static class OpenConversation {
+        private String conversationId;
+
+        @Setup(Level.Invocation)
+        public void open(ConversationToolsBenchmark benchmark) {
+            conversationId = benchmark.fixture.tools.createConversation(
+                    new ConversationTools.CreateConversationArgs(CONSUMER_ID, "Ada", "Lovelace", null, null)).conversationId();
+        }
+    }
+}
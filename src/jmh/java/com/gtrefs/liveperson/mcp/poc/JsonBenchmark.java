@@ -0,0 +1,88 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Jackson round trips of the LivePerson response records and the tool argument/result records. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    // Same defaults Spring Boot applies to its ObjectMapper bean
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final byte[] conversationJson = """
+            {"id":"8f2e6c1a-1b2c-4d3e-9f8a-7b6c5d4e3f2a","conversationId":null,
+             "dialogs":[{"id":"8f2e6c1a-1b2c-4d3e-9f8a-7b6c5d4e3f2a","dialogType":"MAIN","channelType":"MESSAGING"}],
+             "stage":"OPEN","startTs":1700000000000,"brandId":"12345678"}
+            """.getBytes(StandardCharsets.UTF_8);
+    private final byte[] publishJson = """
+            {"conversationId":"8f2e6c1a","dialogId":"8f2e6c1a","messageId":"ms::dialog:8f2e6c1a::msg:4","sequence":4}
+            """.getBytes(StandardCharsets.UTF_8);
+    private final byte[] createArgsJson = """
+            {"consumerId":"3b6f8f7e-0a7d-4c2b-9a49-6f1c2d3e4f50","firstName":"Ada","lastName":"Lovelace"}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectReader conversationReader = mapper.readerFor(LivePersonResponse.ConversationResponse.class);
+    private final ObjectReader publishReader = mapper.readerFor(LivePersonResponse.PublishMessageResponse.class);
+    private final ObjectReader createArgsReader = mapper.readerFor(ConversationTools.CreateConversationArgs.class);
+    private final ObjectWriter writer = mapper.writer();
+
+    private final ConversationTools.CreateConversationResult createResult =
+            new ConversationTools.CreateConversationResult("8f2e6c1a-1b2c-4d3e", "8f2e6c1a-1b2c-4d3e", "CREATED");
+    private final ConversationTools.BatchResult<ConversationTools.SendMessageResult> batchResult =
+            new ConversationTools.BatchResult<>(2, 0, List.of(
+                    new ConversationTools.BatchItem<>(0, new ConversationTools.SendMessageResult("c1", "d1", "m1"), null),
+                    new ConversationTools.BatchItem<>(1, new ConversationTools.SendMessageResult("c2", "d2", "m2"), null)));
+
+    @Benchmark
+    public LivePersonResponse.ConversationResponse readConversationResponse() throws IOException {
+        return conversationReader.readValue(conversationJson);
+    }
+
+    @Benchmark
+    public LivePersonResponse.PublishMessageResponse readPublishMessageResponse() throws IOException {
+        return publishReader.readValue(publishJson);
+    }
+
+    @Benchmark
+    public ConversationTools.CreateConversationArgs readCreateConversationArgs() throws IOException {
+        return createArgsReader.readValue(createArgsJson);
+    }
+
+    @Benchmark
+    public byte[] writeCreateConversationResult() throws IOException {
+        return writer.writeValueAsBytes(createResult);
+    }
+
+    @Benchmark
+    public byte[] writeBatchResult() throws IOException {
+        return writer.writeValueAsBytes(batchResult);
+    }
+
+    @Benchmark
+    public byte[] writeConsumerPayload() throws IOException {
+        return writer.writeValueAsBytes(ConversationTools.consumerPayload(
+                new ConversationTools.CreateConversationArgs("3b6f8f7e", "Ada", "Lovelace", null, null), "12345678"));
+    }
+}
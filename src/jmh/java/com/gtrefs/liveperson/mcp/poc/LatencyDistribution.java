@@ -0,0 +1,66 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response delay injected by the {@link LivePersonStub}. Parsed from a short spec:
+ * {@code none}, {@code fixed:20} (ms), {@code uniform:10-50} (ms) or {@code lognormal:20,250} (median and p99 in ms,
+ * the long right tail real upstreams tend to have).
+ */
+sealed interface LatencyDistribution {
+
+    LatencyDistribution NONE = new Fixed(0);
+
+    /** Next delay in nanoseconds. */
+    long nextNanos();
+
+    static LatencyDistribution parse(String spec) {
+        if (spec == null || spec.isBlank() || spec.equals("none")) {
+            return NONE;
+        }
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? spec : spec.substring(0, colon);
+        String[] values = colon < 0 ? new String[0] : spec.substring(colon + 1).split("[-,]");
+        try {
+            return switch (kind) {
+                case "fixed" -> new Fixed(millis(values[0]));
+                case "uniform" -> new Uniform(millis(values[0]), millis(values[1]));
+                case "lognormal" -> LogNormal.of(millis(values[0]), millis(values[1]));
+                default -> throw new IllegalArgumentException("Unknown latency distribution '" + kind + "'");
+            };
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed latency spec '" + spec + "'", e);
+        }
+    }
+
+    private static long millis(String value) {
+        return (long) (Double.parseDouble(value.trim()) * 1_000_000);
+    }
+
+    record Fixed(long nanos) implements LatencyDistribution {
+        public long nextNanos() {
+            return nanos;
+        }
+    }
+
+    record Uniform(long minNanos, long maxNanos) implements LatencyDistribution {
+        public long nextNanos() {
+            return minNanos + ThreadLocalRandom.current().nextLong(Math.max(1, maxNanos - minNanos + 1));
+        }
+    }
+
+    record LogNormal(double mu, double sigma) implements LatencyDistribution {
+
+        /** z-score of the 99th percentile of a standard normal distribution. */
+        private static final double Z_99 = 2.326;
+
+        static LogNormal of(long medianNanos, long p99Nanos) {
+            double mu = Math.log(medianNanos);
+            return new LogNormal(mu, Math.max(0, (Math.log(p99Nanos) - mu) / Z_99));
+        }
+
+        public long nextNanos() {
+            return (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the Sentinel token, IdP consumer JWS, Messaging v1 and Messaging Interactions conversation
+ * search endpoints, speaking plain HTTP.
+ * <p>
+ * Conversations are kept in memory with a version that every publish and close bumps; it is returned as the
+ * {@code ETag}, and a close whose {@code If-Match} does not match the current version fails with 412, as on LivePerson.
+ * Published texts are kept, with the conversation's consumer, so the conversation search can return them.
+ * {@link Options} adds per-upstream latency and error injection; {@link Options#INSTANT} answers immediately, which
+ * is what the JMH suites use to measure our own overhead.
+ */
+final class LivePersonStub implements AutoCloseable {
+
+    private static final Pattern TEXT = Pattern.compile("\"text\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern CONVERSATION_ID = Pattern.compile("\"conversationId\"\\s*:\\s*\"([^\"]*)\"");
+
+    private final HttpServer server;
+    private final Options options;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+
+    LivePersonStub() throws IOException {
+        this(Options.INSTANT);
+    }
+
+    LivePersonStub(Options options) throws IOException {
+        this.options = options;
+        // Headers and body are written separately; without TCP_NODELAY every response waits out a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/sentinel/", exchange -> {
+            if (admit(exchange, options.sentinelLatency())) {
+                respond(exchange, 200, null, "{\"access_token\":\"app-jwt\",\"expires_in\":3600}");
+            }
+        });
+        server.createContext("/api/", exchange -> {
+            if (admit(exchange, options.idpLatency())) {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                respond(exchange, 200, null, "{\"token\":\"" + consumerJws(body) + "\"}");
+            }
+        });
+        server.createContext("/messaging/", exchange -> {
+            if (admit(exchange, options.messagingLatency())) {
+                messaging(exchange);
+            }
+        });
+        server.createContext("/messaging_history/", exchange -> {
+            if (admit(exchange, options.messagingLatency())) {
+                searchConversation(exchange);
+            }
+        });
+        server.start();
+    }
+
+    String domain() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int conversationCount() {
+        return conversations.size();
+    }
+
+    /** Applies the configured delay, then either injects an error response or lets the request through. */
+    private boolean admit(HttpExchange exchange, LatencyDistribution latency) throws IOException {
+        long delay = latency.nextNanos();
+        if (delay > 0) {
+            LockSupport.parkNanos(delay);
+        }
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < options.throttleRate()) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 429, null, "{\"error\":\"too many requests\"}");
+            return false;
+        }
+        if (roll < options.throttleRate() + options.errorRate()) {
+            respond(exchange, options.errorStatus(), null, "{\"error\":\"injected\"}");
+            return false;
+        }
+        return true;
+    }
+
+    // PUT  /messaging/v1/consumers/{id}
+    // POST /messaging/v1/consumers/{id}/conversations
+    // GET|PATCH /messaging/v1/conversations/{id}
+    // POST /messaging/v1/conversations/{id}/dialogs/{dialogId}/messages
+    private void messaging(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length < 5) {
+            respond(exchange, 404, null, "{}");
+            return;
+        }
+        if (path[3].equals("consumers")) {
+            if (path.length == 6 && method.equals("POST")) {
+                createConversation(exchange, path[4]);
+            } else {
+                respond(exchange, 200, null, "{\"id\":\"" + path[4] + "\"}");
+            }
+            return;
+        }
+        Conversation conversation = conversations.get(path[4]);
+        if (conversation == null) {
+            respond(exchange, 404, null, "{\"error\":\"unknown conversation\"}");
+        } else if (path.length == 8 && method.equals("POST")) {
+            publish(exchange, conversation);
+        } else if (method.equals("PATCH")) {
+            close(exchange, conversation);
+        } else {
+            respond(exchange, 200, conversation.etag(), conversation.json());
+        }
+    }
+
+    // POST /messaging_history/api/account/{accountId}/conversations/conversation/search
+    private void searchConversation(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Matcher id = CONVERSATION_ID.matcher(body);
+        Conversation conversation = id.find() ? conversations.get(id.group(1)) : null;
+        respond(exchange, 200, null, "{\"conversationHistoryRecords\":["
+                + (conversation != null ? conversation.historyRecordJson() : "") + "]}");
+    }
+
+    private void createConversation(HttpExchange exchange, String consumerId) throws IOException {
+        long n = sequence.incrementAndGet();
+        Conversation conversation = new Conversation("conv-" + n, "dlg-" + n, consumerId);
+        conversations.put(conversation.id, conversation);
+        respond(exchange, 200, conversation.etag(), conversation.json());
+    }
+
+    private void publish(HttpExchange exchange, Conversation conversation) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Matcher text = TEXT.matcher(body);
+        String messageId = "msg-" + sequence.incrementAndGet();
+        String etag = null;
+        synchronized (conversation) {
+            if (!conversation.closed) {
+                conversation.version++;
+                conversation.messages.add("{\"seq\":" + conversation.messages.size() + ",\"messageId\":\"" + messageId
+                        + "\",\"dialogId\":\"" + conversation.dialogId + "\",\"participantId\":\"" + conversation.consumerId
+                        + "\",\"sentBy\":\"Consumer\",\"type\":\"TEXT_PLAIN\",\"messageData\":{\"msg\":{\"text\":\""
+                        + (text.find() ? text.group(1) : "") + "\"}},\"timeL\":" + System.currentTimeMillis() + "}");
+                etag = conversation.etag();
+            }
+        }
+        if (etag == null) {
+            respond(exchange, 400, null, "{\"error\":\"conversation is closed\"}");
+            return;
+        }
+        respond(exchange, 200, etag, "{\"conversationId\":\"" + conversation.id + "\",\"dialogId\":\""
+                + conversation.dialogId + "\",\"messageId\":\"" + messageId + "\"}");
+    }
+
+    private void close(HttpExchange exchange, Conversation conversation) throws IOException {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        String etag = null;
+        synchronized (conversation) {
+            if (ifMatch == null || ifMatch.equals(conversation.etag())) {
+                conversation.closed = true;
+                conversation.version++;
+                etag = conversation.etag();
+            }
+        }
+        if (etag == null) {
+            respond(exchange, 412, null, "{\"error\":\"etag mismatch\"}");
+            return;
+        }
+        respond(exchange, 200, etag, "{\"id\":\"" + conversation.id + "\",\"status\":\"CLOSE\"}");
+    }
+
+    private static String consumerJws(String requestBody) {
+        String claims = "{\"lp_consumer_id\":\"lp-" + Integer.toHexString(requestBody.hashCode())
+                + "\",\"exp\":" + Instant.now().plusSeconds(3600).getEpochSecond() + "}";
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".sig";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String etag, String json) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (etag != null) {
+            exchange.getResponseHeaders().add("ETag", etag);
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static final class Conversation {
+        final String id;
+        final String dialogId;
+        final String consumerId;
+        final List<String> messages = new ArrayList<>();
+        int version = 1;
+        boolean closed;
+
+        Conversation(String id, String dialogId, String consumerId) {
+            this.id = id;
+            this.dialogId = dialogId;
+            this.consumerId = consumerId;
+        }
+
+        synchronized String etag() {
+            return "\"" + version + "\"";
+        }
+
+        /** The whole transcript, as the conversation search returns it; the sequence is the index in the conversation. */
+        synchronized String historyRecordJson() {
+            return "{\"messageRecords\":[" + String.join(",", messages) + "],\"consumerParticipants\":[{\"participantId\":\""
+                    + consumerId + "\"}]}";
+        }
+
+        synchronized String json() {
+            return "{\"id\":\"" + id + "\",\"stage\":\"" + (closed ? "CLOSE" : "OPEN") + "\",\"dialogs\":[{\"id\":\""
+                    + dialogId + "\"}]}";
+        }
+    }
+
+    /**
+     * Latency per upstream plus error injection: {@code throttleRate} of requests get a 429 with {@code Retry-After},
+     * a further {@code errorRate} get {@code errorStatus}.
+     */
+    record Options(LatencyDistribution sentinelLatency,
+                   LatencyDistribution idpLatency,
+                   LatencyDistribution messagingLatency,
+                   double throttleRate,
+                   double errorRate,
+                   int errorStatus) {
+
+        static final Options INSTANT = new Options(LatencyDistribution.NONE, LatencyDistribution.NONE,
+                LatencyDistribution.NONE, 0, 0, 503);
+
+        /** Reads {@code latency}, {@code latency.<sentinel|idp|messaging>}, {@code throttle-rate}, {@code error-rate}, {@code error-status}. */
+        static Options from(Map<String, String> settings) {
+            String latency = settings.getOrDefault("latency", "none");
+            return new Options(
+                    LatencyDistribution.parse(settings.getOrDefault("latency.sentinel", latency)),
+                    LatencyDistribution.parse(settings.getOrDefault("latency.idp", latency)),
+                    LatencyDistribution.parse(settings.getOrDefault("latency.messaging", latency)),
+                    Double.parseDouble(settings.getOrDefault("throttle-rate", "0")),
+                    Double.parseDouble(settings.getOrDefault("error-rate", "0")),
+                    Integer.parseInt(settings.getOrDefault("error-status", "503")));
+        }
+    }
+}
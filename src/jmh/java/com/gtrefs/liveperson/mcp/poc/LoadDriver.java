@@ -0,0 +1,314 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives MCP servers: each session is one MCP client on its own connection, looping through the
+ * {@code conversation_flow} sequence (create_conversation, {@code messages} x send_message, close_conversation) until
+ * the deadline. Latencies are recorded per tool and per whole flow, after the warm-up only.
+ * <p>
+ * Over SSE each session stays on one of the {@code targets}, assigned in turn. Over stateless Streamable HTTP every
+ * request goes to the next target, as behind a round-robin balancer.
+ * <p>
+ * With {@code runawaySessions} set, that many extra sessions misbehave alongside: each fires send_message from
+ * {@code runawayConcurrency} threads, pausing only briefly after a refused or failed call. Their calls are reported separately as {@value #RUNAWAY}.
+ */
+final class LoadDriver {
+
+    static final String FLOW = "conversation_flow";
+    static final String RUNAWAY = "runaway_send_message";
+    // Refusals come back at once; retrying without any pause would only measure the driver's own CPU use
+    private static final Duration RUNAWAY_RETRY_PAUSE = Duration.ofMillis(50);
+    private static final List<String> OPERATIONS =
+            List.of("create_conversation", "send_message", "close_conversation", FLOW);
+
+    private final Settings settings;
+
+    LoadDriver(Settings settings) {
+        this.settings = settings;
+    }
+
+    Report run() throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long deadline = measureFrom + settings.duration().toNanos();
+
+        List<Session> sessions = new ArrayList<>();
+        List<Runaway> runaways = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < settings.runawaySessions(); i++) {
+                Runaway runaway = new Runaway(transport(i), measureFrom, deadline);
+                runaways.add(runaway);
+                running.add(executor.submit(() -> {
+                    runaway.run();
+                    return null;
+                }));
+            }
+            for (int i = 0; i < settings.sessions(); i++) {
+                Session session = new Session(transport(i), measureFrom, deadline);
+                sessions.add(session);
+                running.add(executor.submit(() -> {
+                    session.run();
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        }
+
+        Map<String, Samples> merged = new LinkedHashMap<>();
+        OPERATIONS.forEach(op -> merged.put(op, new Samples()));
+        int failedSessions = 0;
+        for (Session session : sessions) {
+            session.samples.forEach((op, samples) -> merged.get(op).addAll(samples));
+            if (session.failure != null) {
+                failedSessions++;
+            }
+        }
+        double seconds = settings.duration().toNanos() / 1e9;
+        Map<String, Report.Operation> operations = new LinkedHashMap<>();
+        merged.forEach((op, samples) -> operations.put(op, samples.summarize(seconds)));
+        if (!runaways.isEmpty()) {
+            Samples runawaySamples = new Samples();
+            runaways.forEach(runaway -> runawaySamples.addAll(runaway.samples));
+            operations.put(RUNAWAY, runawaySamples.summarize(seconds));
+        }
+        return new Report(settings.sessions(), failedSessions, seconds, operations);
+    }
+
+    private final class Session {
+
+        private final McpClientTransport transport;
+        private final long measureFrom;
+        private final long deadline;
+        private final String consumerId = UUID.randomUUID().toString();
+        private final Map<String, Samples> samples = new LinkedHashMap<>();
+        private Exception failure;
+
+        Session(McpClientTransport transport, long measureFrom, long deadline) {
+            this.transport = transport;
+            this.measureFrom = measureFrom;
+            this.deadline = deadline;
+            OPERATIONS.forEach(op -> samples.put(op, new Samples()));
+        }
+
+        void run() {
+            try (McpSyncClient client = McpClient.sync(transport).requestTimeout(settings.requestTimeout()).build()) {
+                client.initialize();
+                while (System.nanoTime() < deadline) {
+                    flow(client);
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        private void flow(McpSyncClient client) {
+            long flowStart = System.nanoTime();
+            McpSchema.CallToolResult created = call(client, "create_conversation",
+                    Map.of("consumerId", consumerId, "firstName", "Load", "lastName", "Test"));
+            boolean ok = succeeded(created);
+            String conversationId = ok ? conversationId(created) : null;
+            for (int i = 0; ok && i < settings.messages(); i++) {
+                ok = succeeded(call(client, "send_message",
+                        Map.of("consumerId", consumerId, "conversationId", conversationId, "text", "Message " + i)));
+            }
+            if (conversationId != null) {
+                ok &= succeeded(call(client, "close_conversation",
+                        Map.of("consumerId", consumerId, "conversationId", conversationId)));
+            }
+            record(FLOW, flowStart, ok);
+        }
+
+        private McpSchema.CallToolResult call(McpSyncClient client, String tool, Map<String, Object> args) {
+            long start = System.nanoTime();
+            McpSchema.CallToolResult result = null;
+            try {
+                result = client.callTool(new McpSchema.CallToolRequest(tool, Map.of("args", args)));
+            } catch (RuntimeException e) {
+                // Counted as an error below; the session carries on with the next flow
+            }
+            record(tool, start, succeeded(result));
+            return result;
+        }
+
+        private void record(String operation, long start, boolean ok) {
+            if (start >= measureFrom && start < deadline) {
+                samples.get(operation).add(System.nanoTime() - start, ok);
+            }
+        }
+    }
+
+    /** A misbehaving agent: one session looping send_message from several threads at once. */
+    private final class Runaway {
+
+        private final McpClientTransport transport;
+        private final long measureFrom;
+        private final long deadline;
+        private final String consumerId = UUID.randomUUID().toString();
+        private final Samples samples = new Samples();
+
+        Runaway(McpClientTransport transport, long measureFrom, long deadline) {
+            this.transport = transport;
+            this.measureFrom = measureFrom;
+            this.deadline = deadline;
+        }
+
+        void run() {
+            try (McpSyncClient client = McpClient.sync(transport).requestTimeout(settings.requestTimeout()).build()) {
+                client.initialize();
+                McpSchema.CallToolResult created = client.callTool(new McpSchema.CallToolRequest("create_conversation",
+                        Map.of("args", Map.of("consumerId", consumerId, "firstName", "Runaway", "lastName", "Agent"))));
+                String conversationId = succeeded(created) ? conversationId(created) : null;
+                if (conversationId == null) {
+                    return;
+                }
+                Map<String, Object> args = Map.of("args",
+                        Map.of("consumerId", consumerId, "conversationId", conversationId, "text", "Again"));
+                try (ExecutorService loops = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (int i = 0; i < settings.runawayConcurrency(); i++) {
+                        loops.submit(() -> {
+                            while (System.nanoTime() < deadline) {
+                                long start = System.nanoTime();
+                                McpSchema.CallToolResult result = null;
+                                try {
+                                    result = client.callTool(new McpSchema.CallToolRequest("send_message", args));
+                                } catch (RuntimeException e) {
+                                    // Rejected or failed; a runaway agent just tries again
+                                }
+                                if (start >= measureFrom) {
+                                    synchronized (samples) {
+                                        samples.add(System.nanoTime() - start, succeeded(result));
+                                    }
+                                }
+                                if (!succeeded(result)) {
+                                    pause(RUNAWAY_RETRY_PAUSE);
+                                }
+                            }
+                        });
+                    }
+                }
+            } catch (RuntimeException e) {
+                // The regular sessions are what is being measured
+            }
+        }
+    }
+
+    private McpClientTransport transport(int index) {
+        if (settings.streamableEndpoint() != null) {
+            return new StreamableHttpClientTransport(settings.targets(), settings.streamableEndpoint());
+        }
+        return HttpClientSseClientTransport.builder(settings.targets().get(index % settings.targets().size()))
+                .sseEndpoint(settings.sseEndpoint())
+                .build();
+    }
+
+    private static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean succeeded(McpSchema.CallToolResult result) {
+        return result != null && !Boolean.TRUE.equals(result.isError());
+    }
+
+    /** The tool result is the JSON of {@code CreateConversationResult}; only the id is needed. */
+    private static String conversationId(McpSchema.CallToolResult result) {
+        if (result.content().isEmpty() || !(result.content().getFirst() instanceof McpSchema.TextContent text)) {
+            return null;
+        }
+        String json = text.text();
+        int key = json.indexOf("\"conversationId\"");
+        if (key < 0) {
+            return null;
+        }
+        int open = json.indexOf('"', json.indexOf(':', key) + 1);
+        int close = json.indexOf('"', open + 1);
+        return open < 0 || close < 0 ? null : json.substring(open + 1, close);
+    }
+
+    /** Latencies in nanoseconds plus an error count; single-threaded per session, merged at the end. */
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        void add(long latencyNanos, boolean ok) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void addAll(Samples other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+
+        Report.Operation summarize(double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new Report.Operation(count, errors, count / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    count == 0 ? 0 : sorted[count - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /** {@code streamableEndpoint} selects stateless Streamable HTTP; without it the sessions use SSE. */
+    record Settings(List<String> targets, String sseEndpoint, String streamableEndpoint, int sessions,
+                    Duration warmup, Duration duration, int messages, Duration requestTimeout,
+                    int runawaySessions, int runawayConcurrency) {
+    }
+
+    /** Latencies in milliseconds, throughput in completed operations per second of the measurement window. */
+    record Report(int sessions, int failedSessions, double seconds, Map<String, Operation> operations) {
+
+        record Operation(int count, int errors, double throughput, double p50, double p99, double p999, double max) {
+        }
+
+        String table() {
+            StringBuilder out = new StringBuilder(String.format("%d sessions (%d failed), %.0f s measured%n",
+                    sessions, failedSessions, seconds));
+            out.append(String.format("%-20s %9s %7s %9s %9s %9s %9s %9s%n",
+                    "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+            operations.forEach((name, op) -> out.append(String.format("%-20s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, op.count(), op.errors(), op.throughput(), op.p50(), op.p99(), op.p999(), op.max())));
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end load test: starts a {@link LivePersonStub} and {@code nodes} of this server in-process (or targets
+ * running servers with {@code --target}), drives them with {@link LoadDriver} and prints throughput and latency
+ * percentiles per tool.
+ * <p>
+ * Options, all {@code --key=value}: {@code sessions} (50), {@code warmup} (10 s), {@code duration} (30 s),
+ * {@code messages} per conversation (3), {@code runaway} sessions flooding send_message (0) and their
+ * {@code runaway-concurrency} (32), {@code server-type} (SYNC|ASYNC), {@code transport} (sse|streamable),
+ * {@code streamable-endpoint} (/mcp), {@code nodes} (1), {@code target} (comma-separated), {@code result}
+ * (target/load-result.json), plus the stub's {@code latency[.<upstream>]}, {@code throttle-rate}, {@code error-rate}
+ * and {@code error-status}. Any other {@code --lp.*} or {@code --spring.*} option is passed to the embedded server.
+ */
+public final class LoadTest {
+
+    private static final String SESSION_SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --key=value, got '" + arg + "'");
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        boolean streamable = switch (options.getOrDefault("transport", "sse")) {
+            case "sse" -> false;
+            case "streamable" -> true;
+            default -> throw new IllegalArgumentException("Expected --transport=sse|streamable");
+        };
+        LivePersonStub stub = null;
+        List<ConfigurableApplicationContext> servers = new ArrayList<>();
+        try {
+            List<String> targets = new ArrayList<>();
+            if (options.containsKey("target")) {
+                targets.addAll(List.of(options.get("target").split(",")));
+            } else {
+                // All nodes share the stand-in, as they would share LivePerson
+                stub = new LivePersonStub(LivePersonStub.Options.from(options));
+                int nodes = Integer.parseInt(options.getOrDefault("nodes", "1"));
+                for (int i = 0; i < nodes; i++) {
+                    ConfigurableApplicationContext server = startServer(stub, options);
+                    servers.add(server);
+                    targets.add("http://127.0.0.1:" + server.getEnvironment().getProperty("local.server.port"));
+                }
+            }
+
+            var settings = new LoadDriver.Settings(targets,
+                    options.getOrDefault("sse-endpoint", "/mcp/sse"),
+                    streamable ? options.getOrDefault("streamable-endpoint", "/mcp") : null,
+                    Integer.parseInt(options.getOrDefault("sessions", "50")),
+                    Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))),
+                    Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))),
+                    Integer.parseInt(options.getOrDefault("messages", "3")),
+                    Duration.ofSeconds(Long.parseLong(options.getOrDefault("request-timeout", "30"))),
+                    Integer.parseInt(options.getOrDefault("runaway", "0")),
+                    Integer.parseInt(options.getOrDefault("runaway-concurrency", "32")));
+            System.out.printf("Driving %s over %s with %d sessions for %s (+%s warm-up)%n", String.join(", ", targets),
+                    streamable ? "stateless Streamable HTTP" : "SSE", settings.sessions(), settings.duration(),
+                    settings.warmup());
+
+            LoadDriver.Report report = new LoadDriver(settings).run();
+            System.out.print(report.table());
+
+            File result = new File(options.getOrDefault("result", "target/load-result.json"));
+            if (result.getParentFile() != null) {
+                result.getParentFile().mkdirs();
+            }
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(result, report);
+            System.out.println("Results written to " + result);
+        } finally {
+            servers.forEach(ConfigurableApplicationContext::close);
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startServer(LivePersonStub stub, Map<String, String> options) {
+        Map<String, String> properties = new HashMap<>(Map.of(
+                "server.port", "0",
+                "spring.ai.mcp.server.type", options.getOrDefault("server-type", "SYNC"),
+                "lp.account-id", BenchmarkFixture.ACCOUNT_ID,
+                "lp.domains.sentinel", stub.domain(),
+                "lp.domains.idp", stub.domain(),
+                "lp.domains.messaging", stub.domain(),
+                "lp.auth.client-id", "client-id",
+                "lp.auth.client-secret", "client-secret",
+                "lp.http.scheme", "http",
+                "lp.http.version", "HTTP_1_1"));
+        properties.put("lp.domains.messaging-history", stub.domain());
+        // Nodes behind the round-robin driver must accept each other's Mcp-Session-Id
+        properties.put("lp.streamable-http.session-secret", SESSION_SECRET);
+        // Open SSE streams are cut when the server stops, which the web layer reports as warnings
+        properties.put("logging.level.root", "ERROR");
+        properties.put("logging.level.com.gtrefs.liveperson.mcp.poc", "WARN");
+        // The driver's MCP clients share this JVM; failed calls are counted in the report instead of logged one by one
+        properties.put("logging.level.io.modelcontextprotocol.client", "OFF");
+        properties.put("logging.level.io.modelcontextprotocol.spec.McpClientSession", "OFF");
+        options.forEach((key, value) -> {
+            if (key.startsWith("lp.") || key.startsWith("spring.") || key.startsWith("server.")
+                    || key.startsWith("logging.")) {
+                properties.put(key, value);
+            }
+        });
+        // Command-line arguments, so they win over the ${LP_*} placeholders in application.yml
+        String[] args = properties.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(McpServerApplication.class).run(args);
+    }
+}
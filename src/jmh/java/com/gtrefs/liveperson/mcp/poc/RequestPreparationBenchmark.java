@@ -0,0 +1,57 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService.ConsumerIdentity;
+import com.gtrefs.liveperson.mcp.poc.http.Upstream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of resolving the identity and building the per-request headers and URI once both tokens are cached. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestPreparationBenchmark {
+
+    private BenchmarkFixture fixture;
+    private MessagingUris uris;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fixture = new BenchmarkFixture();
+        // Warm both token caches so only request preparation is measured
+        fixture.consumerJwsService.getConsumerJws("consumer-1");
+        fixture.appJwtService.getAppJwt();
+        uris = new MessagingUris(fixture.httpClients.origin(Upstream.MESSAGING, fixture.stub.domain()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void prepareRequest(Blackhole blackhole) {
+        ConsumerIdentity identity = fixture.consumerJwsService.getConsumerJws("consumer-1");
+        HttpHeaders headers = new HttpHeaders();
+        fixture.restClient.authHeaders(identity).accept(headers);
+        blackhole.consume(headers);
+        blackhole.consume(uris.consumerConversations(identity.lpConsumerId()));
+    }
+}
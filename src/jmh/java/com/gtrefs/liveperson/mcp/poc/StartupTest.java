@@ -0,0 +1,191 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.HttpClientSseClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup benchmark: launches the packaged server as a fresh JVM against a {@link LivePersonStub}, several times, and
+ * measures from process start to the first {@code /mcp/sse} handshake (the {@code endpoint} event) and to the first
+ * successful {@code create_conversation} call.
+ * <p>
+ * Options, all {@code --key=value}: {@code mode} ({@code plain} runs the fat jar, {@code fast-startup} the AOT + CDS
+ * build of {@code -Pfast-startup}), {@code runs} (5), {@code server-type} (SYNC|ASYNC, must match the AOT build),
+ * {@code timeout} per run (120 s), {@code target-dir} (target), {@code jar} (the packaged jar's file name),
+ * {@code result} (target/startup-result.json).
+ */
+public final class StartupTest {
+
+    private StartupTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --key=value, got '" + arg + "'");
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        // No Spring Boot logging setup here; keep the MCP client's INFO lines out of the report
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        String mode = options.getOrDefault("mode", "plain");
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "120")));
+        File result = new File(options.getOrDefault("result", "target/startup-result.json"));
+        if (result.getParentFile() != null) {
+            result.getParentFile().mkdirs();
+        }
+        File serverLog = new File(result.getParentFile(), "startup-server.log");
+
+        List<Run> samples = new ArrayList<>();
+        try (LivePersonStub stub = new LivePersonStub()) {
+            for (int i = 0; i < runs; i++) {
+                Run run = measure(command(mode, options, stub), timeout, serverLog);
+                System.out.printf("run %d: sse handshake %d ms, first tool call %d ms%n",
+                        i + 1, run.sseHandshakeMs(), run.firstToolCallMs());
+                samples.add(run);
+            }
+        }
+
+        Report report = new Report(mode, samples, Summary.of(samples.stream().map(Run::sseHandshakeMs).toList()),
+                Summary.of(samples.stream().map(Run::firstToolCallMs).toList()));
+        System.out.printf("%-18s %8s %8s %8s%n", mode, "min", "median", "max");
+        System.out.printf("%-18s %8d %8d %8d%n", "sse handshake ms",
+                report.sseHandshake().min(), report.sseHandshake().median(), report.sseHandshake().max());
+        System.out.printf("%-18s %8d %8d %8d%n", "first tool ms",
+                report.firstToolCall().min(), report.firstToolCall().median(), report.firstToolCall().max());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(result, report);
+        System.out.println("Results written to " + result);
+    }
+
+    private static List<String> command(String mode, Map<String, String> options, LivePersonStub stub) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String target = options.getOrDefault("target-dir", "target");
+        String jar = options.getOrDefault("jar", "mcp-liveperson-server-0.2.0.jar");
+        List<String> command = new ArrayList<>(List.of(java));
+        switch (mode) {
+            case "plain" -> command.addAll(List.of("-jar", target + "/" + jar));
+            case "fast-startup" -> command.addAll(List.of(
+                    "-XX:SharedArchiveFile=" + target + "/fast-startup/application.jsa",
+                    "-Dspring.aot.enabled=true",
+                    "-jar", target + "/fast-startup/" + jar));
+            default -> throw new IllegalArgumentException("Unknown mode '" + mode + "', expected plain or fast-startup");
+        }
+        command.addAll(Stream.of(
+                "server.port=" + freePort(),
+                "spring.ai.mcp.server.type=" + options.getOrDefault("server-type", "SYNC"),
+                "lp.account-id=" + BenchmarkFixture.ACCOUNT_ID,
+                "lp.domains.sentinel=" + stub.domain(),
+                "lp.domains.idp=" + stub.domain(),
+                "lp.domains.messaging=" + stub.domain(),
+                "lp.domains.messaging-history=" + stub.domain(),
+                "lp.auth.client-id=client-id",
+                "lp.auth.client-secret=client-secret",
+                "lp.http.scheme=http",
+                "lp.http.version=HTTP_1_1").map(property -> "--" + property).toList());
+        return command;
+    }
+
+    private static Run measure(List<String> command, Duration timeout, File serverLog) throws Exception {
+        String port = command.stream().filter(arg -> arg.startsWith("--server.port="))
+                .findFirst().orElseThrow().substring("--server.port=".length());
+        String base = "http://127.0.0.1:" + port;
+
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        Process server = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(serverLog).start();
+        try {
+            awaitHandshake(base, deadline, server);
+            long handshake = System.nanoTime();
+            firstToolCall(base, timeout);
+            long toolCall = System.nanoTime();
+            return new Run((handshake - start) / 1_000_000, (toolCall - start) / 1_000_000);
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /** Polls until the SSE endpoint answers with its {@code endpoint} event. */
+    private static void awaitHandshake(String base, long deadline, Process server) throws Exception {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/mcp/sse"))
+                    .header("Accept", "text/event-stream").build();
+            while (System.nanoTime() < deadline) {
+                if (!server.isAlive()) {
+                    throw new IllegalStateException("Server exited with " + server.exitValue() + ", see the server log");
+                }
+                try {
+                    HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+                    try (Stream<String> lines = response.body()) {
+                        if (response.statusCode() == 200 && lines.anyMatch(line -> line.startsWith("event:endpoint"))) {
+                            return;
+                        }
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(10);
+            }
+        }
+        throw new IllegalStateException("No SSE handshake before the timeout");
+    }
+
+    private static void firstToolCall(String base, Duration timeout) {
+        var transport = HttpClientSseClientTransport.builder(base).sseEndpoint("/mcp/sse").build();
+        try (McpSyncClient client = McpClient.sync(transport).requestTimeout(timeout).build()) {
+            client.initialize();
+            McpSchema.CallToolResult result = client.callTool(new McpSchema.CallToolRequest("create_conversation",
+                    Map.of("args", Map.of("consumerId", UUID.randomUUID().toString(),
+                            "firstName", "Startup", "lastName", "Test"))));
+            if (Boolean.TRUE.equals(result.isError())) {
+                throw new IllegalStateException("First tool call failed: " + result.content());
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    record Run(long sseHandshakeMs, long firstToolCallMs) {}
+
+    record Summary(long min, long median, long max) {
+        static Summary of(List<Long> values) {
+            List<Long> sorted = values.stream().sorted().toList();
+            return new Summary(sorted.getFirst(), sorted.get(sorted.size() / 2), sorted.getLast());
+        }
+    }
+
+    record Report(String mode, List<Run> runs, Summary sseHandshake, Summary firstToolCall) {}
+}
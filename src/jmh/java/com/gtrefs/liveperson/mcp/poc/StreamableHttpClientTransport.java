@@ -0,0 +1,88 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Client side of the server's stateless Streamable HTTP endpoint, for the SDK's {@code McpSyncClient}: each message is
+ * one POST, and the JSON response is fed back to the client. Consecutive POSTs go to the next node in turn, as a
+ * round-robin balancer would send them.
+ */
+final class StreamableHttpClientTransport implements McpClientTransport {
+
+    private static final String SESSION_ID_HEADER = "Mcp-Session-Id";
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<URI> endpoints;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile Function<Mono<McpSchema.JSONRPCMessage>, Mono<McpSchema.JSONRPCMessage>> handler;
+    private volatile String sessionId;
+
+    StreamableHttpClientTransport(List<String> targets, String endpoint) {
+        this.endpoints = targets.stream().map(target -> URI.create(target + endpoint)).toList();
+    }
+
+    @Override
+    public Mono<Void> connect(Function<Mono<McpSchema.JSONRPCMessage>, Mono<McpSchema.JSONRPCMessage>> handler) {
+        this.handler = handler;
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+        return Mono.defer(() -> {
+            HttpRequest.Builder request = HttpRequest.newBuilder(nextEndpoint())
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "application/json, text/event-stream");
+            if (sessionId != null) {
+                request.header(SESSION_ID_HEADER, sessionId);
+            }
+            try {
+                request.POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(message)));
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            return Mono.fromFuture(httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString()));
+        }).flatMap(response -> {
+            response.headers().firstValue(SESSION_ID_HEADER).ifPresent(id -> sessionId = id);
+            // 202 carries nothing; error statuses still carry the JSON-RPC error for the pending request
+            if (response.body().isEmpty()) {
+                return response.statusCode() / 100 == 2 ? Mono.empty()
+                        : Mono.error(new IOException("HTTP " + response.statusCode()));
+            }
+            try {
+                McpSchema.JSONRPCMessage answer = McpSchema.deserializeJsonRpcMessage(objectMapper, response.body());
+                return handler.apply(Mono.just(answer)).then();
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+        });
+    }
+
+    private URI nextEndpoint() {
+        return endpoints.get(Math.floorMod(next.getAndIncrement(), endpoints.size()));
+    }
+
+    @Override
+    public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+        return objectMapper.convertValue(data, typeRef);
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,41 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of reading {@code lp_consumer_id} and {@code exp} out of a consumer JWS. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConsumerJwsBenchmark {
+
+    private final String jws = jws("{\"alg\":\"RS256\",\"typ\":\"JWT\"}",
+            "{\"iss\":\"https://idp.liveperson.net\",\"sub\":\"ext-consumer-42\","
+                    + "\"lp_consumer_id\":\"7c3b2f0e-9f4a-4c1d-8a53-1b2c3d4e5f60\",\"exp\":1893456000,\"iat\":1700000000}");
+
+    @Benchmark
+    public ConsumerJwsService.JwtClaims extractClaims() {
+        return ConsumerJwsService.extractClaims(jws);
+    }
+
+    private static String jws(String header, String claims) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(new byte[256]);
+    }
+}
@@ -0,0 +1,195 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.gtrefs.liveperson.mcp.poc.auth.AppJwtService;
+import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService;
+import com.gtrefs.liveperson.mcp.poc.auth.TokenStore;
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Routes tool calls to a LivePerson account (brand). Calls without an {@code accountId} go to {@code lp.account-id},
+ * which is served by the application's own beans. Every account configured under {@code lp.tenants.accounts} gets its
+ * own credentials, App JWT and consumer identity cache, created on its first call and released after
+ * {@code lp.tenants.idle-seconds} without one.
+ * <p>
+ * The HTTP clients are shared: their pools keep connections per host, so brands on the same LivePerson domains reuse
+ * each other's connections instead of each opening their own.
+ */
+@Component
+public class Accounts {
+
+    private static final Logger logger = LoggerFactory.getLogger(Accounts.class);
+
+    private final Account defaultAccount;
+    private final Map<String, AccountProperties> configured;
+    private final LoadingCache<String, Tenant> tenants;
+
+    private final LivePersonHttpClients httpClients;
+    private final UpstreamMetrics metrics;
+    private final UpstreamRetry retry;
+    private final TokenStore tokenStore;
+    private final ConversationRegistry conversations;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final boolean async;
+
+    public Accounts(LivePersonRestClient defaultClient,
+                    Optional<LivePersonAsyncRestClient> defaultAsyncClient,
+                    LivePersonHttpClients httpClients,
+                    UpstreamMetrics metrics,
+                    UpstreamRetry retry,
+                    TokenStore tokenStore,
+                    ConversationRegistry conversations,
+                    ObjectMapper objectMapper,
+                    MeterRegistry meterRegistry,
+                    Environment environment,
+                    @Value("${lp.account-id}") String defaultAccountId,
+                    @Value("${lp.tenants.max-active:500}") long maxActive,
+                    @Value("${lp.tenants.idle-seconds:900}") long idleSeconds) {
+        this.defaultAccount = new Account(defaultAccountId, defaultClient, defaultAsyncClient.orElse(null));
+        this.async = defaultAsyncClient.isPresent();
+        this.configured = Binder.get(environment)
+                .bind("lp.tenants.accounts", Bindable.mapOf(String.class, AccountProperties.class))
+                .orElse(Map.of());
+        this.httpClients = httpClients;
+        this.metrics = metrics;
+        this.retry = retry;
+        this.tokenStore = tokenStore;
+        this.conversations = conversations;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.tenants = Caffeine.newBuilder()
+                .maximumSize(maxActive)
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                // Releases idle accounts on time even when no other account is being called
+                .scheduler(Scheduler.systemScheduler())
+                // Runs as part of the eviction, so a call re-creating the account waits until its meters are removed
+                .evictionListener((String accountId, Tenant tenant, RemovalCause cause) -> release(accountId, tenant, cause))
+                .recordStats()
+                .build(this::create);
+        CaffeineCacheMetrics.monitor(meterRegistry, tenants, "lp.tenants");
+        if (!configured.isEmpty()) {
+            logger.info("Serving {} additional accounts besides {}", configured.size(), defaultAccountId);
+        }
+    }
+
+    /** The account to call; {@code null} means the default account. */
+    public Account get(String accountId) {
+        if (accountId == null || accountId.isBlank() || accountId.equals(defaultAccount.id())) {
+            return defaultAccount;
+        }
+        if (!configured.containsKey(accountId)) {
+            throw new IllegalArgumentException("Unknown account '" + accountId + "'");
+        }
+        return tenants.get(accountId).account();
+    }
+
+    private Tenant create(String accountId) {
+        AccountProperties properties = configured.get(accountId);
+        if (properties.clientId() == null || properties.clientSecret() == null) {
+            throw new IllegalStateException("lp.tenants.accounts." + accountId + " needs a client-id and a client-secret");
+        }
+        AccountProperties.Domains domains = properties.domains() != null
+                ? properties.domains() : new AccountProperties.Domains(null, null, null, null);
+        String clientSource = properties.clientSource() != null
+                ? properties.clientSource() : environment.getProperty("lp.client.client-source");
+
+        AppJwtService appJwtService = new AppJwtService(httpClients, metrics, retry, tokenStore, meterRegistry, accountId,
+                orDefault(domains.sentinel(), "lp.domains.sentinel"), properties.clientId(), properties.clientSecret(),
+                environment.getProperty("lp.auth.renew-skew-seconds", Integer.class, 300),
+                environment.getProperty("lp.auth.refresh-backoff-min-ms", Long.class, 1_000L),
+                environment.getProperty("lp.auth.refresh-backoff-max-ms", Long.class, 60_000L));
+        ConsumerJwsService consumerJwsService = new ConsumerJwsService(httpClients, metrics, retry, meterRegistry, accountId,
+                orDefault(domains.idp(), "lp.domains.idp"),
+                environment.getProperty("lp.auth.consumer-cache.max-size", Long.class, 10_000L),
+                environment.getProperty("lp.auth.consumer-cache.ttl-seconds", Long.class, 3_600L),
+                environment.getProperty("lp.auth.consumer-cache.expiry-skew-seconds", Long.class, 60L),
+                appJwtService, tokenStore);
+        String messaging = orDefault(domains.messaging(), "lp.domains.messaging");
+        String messagingHistory = domains.messagingHistory() != null
+                ? domains.messagingHistory() : environment.getProperty("lp.domains.messaging-history", "");
+        LivePersonRestClient client = new LivePersonRestClient(httpClients, messaging, accountId, clientSource,
+                messagingHistory, appJwtService, consumerJwsService, conversations, metrics, retry);
+        LivePersonAsyncRestClient asyncClient = async
+                ? new LivePersonAsyncRestClient(httpClients, objectMapper, messaging, accountId, clientSource,
+                        appJwtService, consumerJwsService, conversations, metrics, retry)
+                : null;
+
+        logger.info("Activated account {}", accountId);
+        return new Tenant(new Account(accountId, client, asyncClient), appJwtService, consumerJwsService);
+    }
+
+    private String orDefault(String domain, String property) {
+        return domain != null ? domain : environment.getRequiredProperty(property);
+    }
+
+    private void release(String accountId, Tenant tenant, RemovalCause cause) {
+        if (tenant == null) {
+            return;
+        }
+        // Calls still holding the account finish normally: its App JWT is still fetched on demand once the renewal
+        // timer is gone, and consumer identities load on an executor shared by all accounts
+        tenant.appJwtService().close();
+        tenant.consumerJwsService().close();
+        logger.info("Released account {} ({})", accountId, cause);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Explicit removals skip the eviction listener
+        tenants.asMap().forEach((accountId, tenant) -> release(accountId, tenant, RemovalCause.EXPLICIT));
+        tenants.invalidateAll();
+    }
+
+    /**
+     * Clients bound to one account. {@code async} is only set when the MCP server runs in ASYNC mode.
+     */
+    public record Account(String id, LivePersonRestClient client, LivePersonAsyncRestClient async) {
+
+        /** Consumer ids are only unique within an account; caches keyed by consumer use this instead. */
+        public String scope(String consumerId) {
+            return scope(id, consumerId);
+        }
+
+        /** As {@link #scope(String)}, for clients that only know their account id. */
+        static String scope(String accountId, String consumerId) {
+            return accountId + '/' + consumerId;
+        }
+    }
+
+    /** One entry of {@code lp.tenants.accounts}; unset domains and client source fall back to the {@code lp.*} ones. */
+    public record AccountProperties(String clientId, String clientSecret, String clientSource, Domains domains) {
+
+        @Override
+        public String toString() {
+            // Keep the client secret out of log lines
+            return "AccountProperties[clientId=" + clientId + ", clientSource=" + clientSource + ", domains=" + domains + "]";
+        }
+
+        public record Domains(String sentinel, String idp, String messaging, String messagingHistory) {}
+    }
+
+    private record Tenant(Account account, AppJwtService appJwtService, ConsumerJwsService consumerJwsService) {}
+}
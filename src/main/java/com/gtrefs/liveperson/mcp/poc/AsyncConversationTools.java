@@ -0,0 +1,214 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.CloseConversationArgs;
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.CloseConversationResult;
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.CreateConversationArgs;
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.SendMessageArgs;
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.SendMessageResult;
+import com.gtrefs.liveperson.mcp.poc.metrics.ToolMetrics;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Registers the {@link ConversationTools} as async MCP tool specifications backed by {@link LivePersonAsyncRestClient}.
+ * Names, descriptions and input schemas are taken from the {@code @Tool} methods so both modes expose the same contract;
+ * tools without a native async handler fall back to running their sync implementation off the request thread.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+public class AsyncConversationTools {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncConversationTools.class);
+
+    // @Tool methods take a single record parameter named "args", which becomes the top-level schema property
+    private static final String ARGS = "args";
+
+    private final Accounts accounts;
+    private final ConversationRegistry conversations;
+    private final ConversationHistory history;
+    private final IdempotencyCache idempotency;
+    private final ConsumerProfileCache profiles;
+    private final ObjectMapper objectMapper;
+    private final ToolMetrics toolMetrics;
+
+    public AsyncConversationTools(Accounts accounts,
+                                  ConversationRegistry conversations,
+                                  ConversationHistory history,
+                                  IdempotencyCache idempotency,
+                                  ConsumerProfileCache profiles,
+                                  ObjectMapper objectMapper,
+                                  ToolMetrics toolMetrics) {
+        this.accounts = accounts;
+        this.conversations = conversations;
+        this.history = history;
+        this.idempotency = idempotency;
+        this.profiles = profiles;
+        this.objectMapper = objectMapper;
+        this.toolMetrics = toolMetrics;
+    }
+
+    @Bean
+    public List<McpServerFeatures.AsyncToolSpecification> conversationAsyncTools(ConversationTools tools) {
+        Map<String, BiFunction<McpAsyncServerExchange, Map<String, Object>, Mono<CallToolResult>>> handlers = Map.of(
+                ConversationTools.CREATE_CONVERSATION, handler(CreateConversationArgs.class, this::createConversation),
+                ConversationTools.SEND_MESSAGE, handler(SendMessageArgs.class, this::sendMessage),
+                ConversationTools.CLOSE_CONVERSATION, handler(CloseConversationArgs.class, this::closeConversation)
+        );
+
+        return Arrays.stream(MethodToolCallbackProvider.builder().toolObjects(tools).build().getToolCallbacks())
+                .map(callback -> {
+                    ToolDefinition definition = callback.getToolDefinition();
+                    var handler = handlers.get(definition.name());
+                    if (handler == null) {
+                        return McpToolUtils.toAsyncToolSpecification(toolMetrics.instrument(callback));
+                    }
+                    var tool = new McpSchema.Tool(definition.name(), definition.description(), definition.inputSchema());
+                    return new McpServerFeatures.AsyncToolSpecification(tool, toolMetrics.instrument(definition.name(), handler));
+                })
+                .toList();
+    }
+
+    private CompletableFuture<ConversationTools.CreateConversationResult> createConversation(CreateConversationArgs args) {
+        String tool = ConversationTools.CREATE_CONVERSATION;
+        Accounts.Account account = accounts.get(args.accountId());
+        LivePersonAsyncRestClient lp = account.async();
+        String consumer = account.scope(args.consumerId());
+        return idempotency.executeAsync(tool, consumer, args.idempotencyKey(), args, () -> {
+            Map<String, Object> profile = ConversationTools.consumerPayload(args, account.id());
+            boolean upToDate = profiles.isCurrent(consumer, profile);
+            CompletableFuture<?> upsert = upToDate
+                    ? CompletableFuture.completedFuture(null)
+                    : lp.putConsumer(args.consumerId(), profile).whenComplete((res, error) -> {
+                        if (error != null) {
+                            // LivePerson may have applied it anyway; an older profile remembered here must not skip the next PUT
+                            profiles.forget(consumer);
+                        } else {
+                            profiles.remember(consumer, profile);
+                            log.debug("putConsumer completed: {}", res);
+                        }
+                    });
+            return upsert
+                    .thenCompose(ignored -> lp.createConversation(args.consumerId(), ConversationTools.CONVERSATION_BODY,
+                            IdempotencyCache.requestId(tool, consumer, args.idempotencyKey())))
+                    .whenComplete((conv, error) -> {
+                        if (upToDate && unwrap(error) instanceof HttpClientErrorException) {
+                            profiles.forget(consumer);
+                        }
+                    })
+                    .thenApply(conv -> {
+                        log.debug("createConversation completed: {}", conv);
+                        return ConversationTools.createdResult(conv);
+                    });
+        });
+    }
+
+    private CompletableFuture<SendMessageResult> sendMessage(SendMessageArgs args) {
+        String tool = ConversationTools.SEND_MESSAGE;
+        Accounts.Account account = accounts.get(args.accountId());
+        LivePersonAsyncRestClient lp = account.async();
+        String consumer = account.scope(args.consumerId());
+        return idempotency.executeAsync(tool, consumer, args.idempotencyKey(), args, () ->
+                resolveDialogId(lp, consumer, args.consumerId(), args.conversationId())
+                        .thenCompose(dialogId -> lp.publishMessage(args.consumerId(), args.conversationId(), dialogId,
+                                ConversationTools.messageBody(args.text()),
+                                IdempotencyCache.requestId(tool, consumer, args.idempotencyKey())))
+                        .thenApply(res -> {
+                            history.markStale(consumer, args.conversationId());
+                            return new SendMessageResult(res.conversationId(), res.dialogId(), res.messageId());
+                        }));
+    }
+
+    private CompletableFuture<CloseConversationResult> closeConversation(CloseConversationArgs args) {
+        Accounts.Account account = accounts.get(args.accountId());
+        String consumer = account.scope(args.consumerId());
+        return idempotency.executeAsync(ConversationTools.CLOSE_CONVERSATION, consumer,
+                args.idempotencyKey(), args, () -> close(account.async(), consumer, args));
+    }
+
+    private CompletableFuture<CloseConversationResult> close(LivePersonAsyncRestClient lp, String consumer,
+                                                             CloseConversationArgs args) {
+        String known = conversations.etag(consumer, args.conversationId());
+        CompletableFuture<String> etag = known != null
+                ? CompletableFuture.completedFuture(known)
+                : fetchEtag(lp, args.consumerId(), args.conversationId());
+
+        return etag
+                .thenCompose(tag -> lp.closeConversation(args.consumerId(), args.conversationId(), tag))
+                .exceptionallyCompose(e -> {
+                    if (!(unwrap(e) instanceof HttpClientErrorException error)
+                            || !error.getStatusCode().isSameCodeAs(HttpStatus.PRECONDITION_FAILED)) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                    log.info("Stale ETag for conversation {}, re-reading before close", args.conversationId());
+                    return fetchEtag(lp, args.consumerId(), args.conversationId())
+                            .thenCompose(tag -> lp.closeConversation(args.consumerId(), args.conversationId(), tag));
+                })
+                .thenApply(closed -> new CloseConversationResult(args.conversationId(), "CLOSED"));
+    }
+
+    private CompletableFuture<String> fetchEtag(LivePersonAsyncRestClient lp, String consumerId, String conversationId) {
+        return lp.getConversationEntity(consumerId, conversationId).thenApply(entity -> entity.getHeaders().getETag());
+    }
+
+    private CompletableFuture<String> resolveDialogId(LivePersonAsyncRestClient lp, String consumer, String consumerId,
+                                                      String conversationId) {
+        String known = conversations.dialogId(consumer, conversationId);
+        if (known != null) {
+            return CompletableFuture.completedFuture(known);
+        }
+        return lp.getConversationEntity(consumerId, conversationId).thenApply(entity -> {
+            String dialogId = entity.getBody() != null ? entity.getBody().mainDialogId() : null;
+            return dialogId != null ? dialogId : conversationId;
+        });
+    }
+
+    private <A, R> BiFunction<McpAsyncServerExchange, Map<String, Object>, Mono<CallToolResult>> handler(
+            Class<A> argsType, Function<A, CompletableFuture<R>> tool) {
+        return (exchange, arguments) -> Mono
+                .fromFuture(() -> tool.apply(objectMapper.convertValue(arguments.get(ARGS), argsType)))
+                .map(this::toResult)
+                .onErrorResume(e -> Mono.just(toError(e)));
+    }
+
+    private CallToolResult toResult(Object result) {
+        try {
+            return new CallToolResult(List.of(new TextContent(objectMapper.writeValueAsString(result))), false);
+        } catch (JsonProcessingException e) {
+            return toError(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static CallToolResult toError(Throwable e) {
+        Throwable cause = unwrap(e);
+        log.warn("Async tool call failed: {}", cause.getMessage());
+        return new CallToolResult(List.of(new TextContent(cause.getMessage())), true);
+    }
+}
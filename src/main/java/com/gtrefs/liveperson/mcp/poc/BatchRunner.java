@@ -0,0 +1,67 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.BatchItem;
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.BatchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Runs the items of a batch tool call on virtual threads with at most {@code parallelism} items in flight.
+ * A failing item never fails the batch; its error is reported next to the other items' results.
+ */
+final class BatchRunner {
+
+    private final int parallelism;
+    private final int maxItems;
+
+    BatchRunner(int parallelism, int maxItems) {
+        this.parallelism = parallelism;
+        this.maxItems = maxItems;
+    }
+
+    <A, R> BatchResult<R> run(List<A> items, Function<A, R> task) {
+        if (items == null || items.isEmpty()) {
+            return new BatchResult<>(0, 0, List.of());
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Batch of " + items.size() + " items exceeds the limit of " + maxItems);
+        }
+
+        Semaphore slots = new Semaphore(parallelism);
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (A item : items) {
+                futures.add(executor.submit(() -> {
+                    slots.acquire();
+                    try {
+                        return task.apply(item);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+        }
+
+        List<BatchItem<R>> results = new ArrayList<>(items.size());
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(new BatchItem<>(i, futures.get(i).get(), null));
+            } catch (ExecutionException e) {
+                failed++;
+                results.add(new BatchItem<>(i, null, String.valueOf(e.getCause().getMessage())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while collecting batch results", e);
+            }
+        }
+        return new BatchResult<>(items.size() - failed, failed, results);
+    }
+}
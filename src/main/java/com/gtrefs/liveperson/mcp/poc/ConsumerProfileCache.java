@@ -0,0 +1,98 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Remembers which consumer profile was last sent to LivePerson, so {@code create_conversation} can skip the consumer
+ * PUT for a returning consumer whose profile has not changed. A profile is only recorded once LivePerson accepted the
+ * PUT; a failed PUT clears the consumer's entry, since LivePerson may or may not have applied it.
+ * <p>
+ * Both the consumer id and the profile are stored only as salted SHA-256 fingerprints; the salt is random per process,
+ * so nothing held here can be reversed into names or ids.
+ */
+@Component
+public class ConsumerProfileCache {
+
+    private final Cache<Fingerprint, Fingerprint> profiles;
+    private final byte[] salt = new byte[16];
+    private final Counter sent;
+    private final Counter skipped;
+
+    public ConsumerProfileCache(MeterRegistry meterRegistry,
+                                @Value("${lp.consumer-profiles.max-size:10000}") long maxSize,
+                                @Value("${lp.consumer-profiles.ttl-seconds:3600}") long ttlSeconds) {
+        new SecureRandom().nextBytes(salt);
+        this.profiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, "lp.consumer.profiles");
+        this.sent = Counter.builder("lp.consumer.profile.puts").tag("outcome", "sent")
+                .description("Consumer PUTs accepted by LivePerson or skipped because the profile was unchanged")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("lp.consumer.profile.puts").tag("outcome", "skipped")
+                .description("Consumer PUTs accepted by LivePerson or skipped because the profile was unchanged")
+                .register(meterRegistry);
+    }
+
+    /** True if {@code profile} is what LivePerson last accepted for this consumer; counts the PUT as skipped. */
+    public boolean isCurrent(String consumerId, Map<String, Object> profile) {
+        boolean current = fingerprint(profile).equals(profiles.getIfPresent(fingerprint(consumerId)));
+        if (current) {
+            skipped.increment();
+        }
+        return current;
+    }
+
+    /** Records a profile LivePerson has accepted; counts the PUT as sent. */
+    public void remember(String consumerId, Map<String, Object> profile) {
+        profiles.put(fingerprint(consumerId), fingerprint(profile));
+        sent.increment();
+    }
+
+    /** Makes the next {@code create_conversation} for this consumer send the PUT again, e.g. after a failed PUT. */
+    public void forget(String consumerId) {
+        profiles.invalidate(fingerprint(consumerId));
+    }
+
+    private Fingerprint fingerprint(String consumerId) {
+        return fingerprint(consumerId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Fingerprint fingerprint(Map<String, Object> profile) {
+        // Sorted, so the fingerprint does not depend on the map's iteration order
+        StringBuilder canonical = new StringBuilder();
+        new TreeMap<>(profile).forEach((key, value) -> canonical.append(key).append('=').append(value).append('\0'));
+        return fingerprint(canonical.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Fingerprint fingerprint(byte[] input) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(input));
+            return new Fingerprint(hash.getLong(), hash.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** First 128 bits of a SHA-256 hash. */
+    private record Fingerprint(long high, long low) {}
+}
@@ -0,0 +1,177 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gtrefs.liveperson.mcp.poc.LivePersonResponse.MessagesResponse.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the most recent messages of each conversation read through {@code get_messages}, so a caller polling with its
+ * cursor is answered from memory and LivePerson is only asked for messages newer than the last one cached.
+ * <p>
+ * Each transcript is a contiguous window: every message with a sequence above {@code floor} up to the newest one seen.
+ * It holds at most {@code lp.history.max-messages} messages (the oldest are dropped first), and is re-synced with
+ * LivePerson at most once per {@code lp.history.refresh-ms} unless a message was published through us in between,
+ * and only when the cached messages cannot fill the requested page.
+ * Reads of the same conversation are serialized, so concurrent pollers share one upstream request. The transcript lock
+ * is a {@link ReentrantLock} rather than a monitor because it is held across that request, and a virtual thread
+ * blocking inside {@code synchronized} would pin its carrier thread.
+ * <p>
+ * Transcripts are cached per consumer ({@link Accounts.Account#scope}), never per conversation alone: what one consumer
+ * was allowed to read is not handed to another, whose first read goes to LivePerson under its own identity.
+ */
+@Component
+public class ConversationHistory {
+
+    private final Cache<Key, Transcript> transcripts;
+    private final int maxMessages;
+    private final long refreshNanos;
+    private final Counter servedFromCache;
+    private final Counter servedFromUpstream;
+
+    public ConversationHistory(MeterRegistry meterRegistry,
+                               @Value("${lp.history.max-conversations:10000}") long maxConversations,
+                               @Value("${lp.history.max-messages:200}") int maxMessages,
+                               @Value("${lp.history.ttl-seconds:1800}") long ttlSeconds,
+                               @Value("${lp.history.refresh-ms:1000}") long refreshMs) {
+        this.maxMessages = maxMessages;
+        this.refreshNanos = Duration.ofMillis(refreshMs).toNanos();
+        this.transcripts = Caffeine.newBuilder()
+                .maximumSize(maxConversations)
+                .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, transcripts, "lp.history");
+        this.servedFromCache = Counter.builder("lp.history.messages").tag("source", "cache")
+                .description("Messages returned by get_messages").register(meterRegistry);
+        this.servedFromUpstream = Counter.builder("lp.history.messages").tag("source", "upstream")
+                .description("Messages returned by get_messages").register(meterRegistry);
+    }
+
+    /**
+     * Messages with a sequence above {@code after} (-1 for the start of the conversation), at most {@code limit},
+     * which is capped at {@code lp.history.max-messages}. {@code lp} is the client of the conversation's account and
+     * {@code consumer} the account-scoped {@code consumerId}.
+     */
+    public Page read(LivePersonRestClient lp, String consumer, String consumerId, String conversationId,
+                     long after, int limit) {
+        limit = Math.max(1, Math.min(limit, maxMessages));
+        Transcript transcript = transcripts.get(new Key(consumer, conversationId), key -> new Transcript());
+        transcript.lock.lock();
+        try {
+            if (after < transcript.floor) {
+                // Older than the cached window: page through LivePerson directly, the window stays as it is
+                List<Message> fetched = fetch(lp, consumerId, conversationId, after, limit);
+                servedFromUpstream.increment(fetched.size());
+                return page(fetched, after, fetched.size() == limit);
+            }
+            if (after > transcript.newest) {
+                // The caller has seen more than we have (e.g. after eviction); restart the window at its cursor
+                transcript.reset(after);
+            }
+
+            List<Message> cached = transcript.after(after, limit + 1);
+            List<Message> messages = cached;
+            boolean stale = !transcript.synced || System.nanoTime() - transcript.syncedAt > refreshNanos;
+            if (cached.size() <= limit && (transcript.incomplete || stale)) {
+                List<Message> fetched = fetch(lp, consumerId, conversationId, transcript.newest, limit);
+                transcript.append(fetched, maxMessages);
+                transcript.incomplete = fetched.size() == limit;
+                transcript.synced = true;
+                transcript.syncedAt = System.nanoTime();
+                servedFromUpstream.increment(Math.min(fetched.size(), limit - cached.size()));
+                messages = new ArrayList<>(cached);
+                messages.addAll(fetched);
+            }
+
+            boolean hasMore = messages.size() > limit || transcript.incomplete;
+            if (messages.size() > limit) {
+                messages = messages.subList(0, limit);
+            }
+            servedFromCache.increment(Math.min(cached.size(), limit));
+            return page(messages, after, hasMore);
+        } finally {
+            transcript.lock.unlock();
+        }
+    }
+
+    /** Forces the next read of a conversation to ask LivePerson, e.g. after we published to it. */
+    public void markStale(String consumer, String conversationId) {
+        Transcript transcript = transcripts.getIfPresent(new Key(consumer, conversationId));
+        if (transcript != null) {
+            transcript.lock.lock();
+            try {
+                transcript.synced = false;
+            } finally {
+                transcript.lock.unlock();
+            }
+        }
+    }
+
+    private List<Message> fetch(LivePersonRestClient lp, String consumerId, String conversationId, long after, int limit) {
+        LivePersonResponse.MessagesResponse response = lp.getMessages(consumerId, conversationId, after, limit);
+        return response != null && response.messages() != null ? response.messages() : List.of();
+    }
+
+    private static Page page(List<Message> messages, long after, boolean hasMore) {
+        long nextCursor = messages.isEmpty() ? after : messages.getLast().sequence();
+        return new Page(List.copyOf(messages), nextCursor, hasMore);
+    }
+
+    public record Page(List<Message> messages, long nextCursor, boolean hasMore) {}
+
+    private record Key(String consumer, String conversationId) {}
+
+    private static final class Transcript {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Message> messages = new ArrayDeque<>();
+        long floor = -1;
+        long newest = -1;
+        long syncedAt;
+        boolean synced;
+        boolean incomplete;
+
+        void reset(long cursor) {
+            messages.clear();
+            floor = cursor;
+            newest = cursor;
+            incomplete = false;
+            synced = false;
+        }
+
+        void append(List<Message> fetched, int maxMessages) {
+            for (Message message : fetched) {
+                if (message.sequence() > newest) {
+                    messages.addLast(message);
+                    newest = message.sequence();
+                }
+            }
+            while (messages.size() > maxMessages) {
+                floor = messages.removeFirst().sequence();
+            }
+        }
+
+        List<Message> after(long cursor, int limit) {
+            List<Message> result = new ArrayList<>(Math.min(limit, messages.size()));
+            for (Message message : messages) {
+                if (message.sequence() > cursor) {
+                    result.add(message);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers, per conversation, the main dialog id and the latest ETag seen on any Messaging response,
+ * so tools can address the right dialog and close a conversation without re-reading it first.
+ * <p>
+ * Entries are keyed by the consumer that saw them ({@link Accounts.Account#scope}) as well as the conversation: a
+ * consumer naming someone else's conversation finds nothing here and is checked by LivePerson on the read that follows.
+ */
+@Component
+public class ConversationRegistry {
+
+    private final Cache<Key, ConversationState> states;
+
+    public ConversationRegistry(MeterRegistry meterRegistry,
+                                @Value("${lp.conversations.max-size:50000}") long maxSize,
+                                @Value("${lp.conversations.ttl-seconds:1800}") long ttlSeconds) {
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, states, "lp.conversations");
+    }
+
+    /** Records the dialog and ETag of a create or get response. */
+    public void record(String consumer, LivePersonResponse.ConversationResponse conversation, HttpHeaders headers) {
+        if (conversation == null || conversation.resolvedId() == null) {
+            return;
+        }
+        update(new Key(consumer, conversation.resolvedId()), conversation.mainDialogId(), headers.getETag());
+    }
+
+    /** Records the dialog a message was published to and the ETag returned with it, if any. */
+    public void recordPublish(String consumer, String conversationId, String dialogId, HttpHeaders headers) {
+        update(new Key(consumer, conversationId), dialogId, headers.getETag());
+    }
+
+    public String dialogId(String consumer, String conversationId) {
+        ConversationState state = states.getIfPresent(new Key(consumer, conversationId));
+        return state != null ? state.dialogId() : null;
+    }
+
+    public String etag(String consumer, String conversationId) {
+        ConversationState state = states.getIfPresent(new Key(consumer, conversationId));
+        return state != null ? state.etag() : null;
+    }
+
+    public void forget(String consumer, String conversationId) {
+        states.invalidate(new Key(consumer, conversationId));
+    }
+
+    private void update(Key key, String dialogId, String etag) {
+        states.asMap().compute(key, (id, current) -> {
+            if (current == null) {
+                return new ConversationState(dialogId, etag);
+            }
+            return new ConversationState(
+                    dialogId != null ? dialogId : current.dialogId(),
+                    etag != null ? etag : current.etag());
+        });
+    }
+
+    /** {@code consumer} is the account-scoped consumer id. */
+    private record Key(String consumer, String conversationId) {}
+
+    private record ConversationState(String dialogId, String etag) {}
+}
@@ -3,92 +3,233 @@ package com.gtrefs.liveperson.mcp.poc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.List;
 import java.util.Map;
 
 @Service
 public class ConversationTools {
-    private final LivePersonRestClient lp;
-    private final String brandId;
+    private final Accounts accounts;
+    private final ConversationRegistry conversations;
+    private final ConversationHistory history;
+    private final IdempotencyCache idempotency;
+    private final ConsumerProfileCache profiles;
+    private final BatchRunner batchRunner;
     private static final Logger log = LoggerFactory.getLogger(ConversationTools.class);
 
-    public ConversationTools(LivePersonRestClient lp, @Value("${lp.account-id}") String brandId) {
-        this.lp = lp;
-        this.brandId = brandId;
+    public ConversationTools(Accounts accounts,
+                             ConversationRegistry conversations,
+                             ConversationHistory history,
+                             IdempotencyCache idempotency,
+                             ConsumerProfileCache profiles,
+                             @Value("${lp.tools.batch.parallelism:8}") int batchParallelism,
+                             @Value("${lp.tools.batch.max-items:100}") int batchMaxItems) {
+        this.accounts = accounts;
+        this.conversations = conversations;
+        this.history = history;
+        this.idempotency = idempotency;
+        this.profiles = profiles;
+        this.batchRunner = new BatchRunner(batchParallelism, batchMaxItems);
     }
 
     @Tool(
-            name = "create_conversation",
-            description = "Create a conversation via Messaging REST API. Returns conversationId and mainDialogId."
+            name = CREATE_CONVERSATION,
+            description = "Create a conversation via Messaging REST API. Returns conversationId and mainDialogId. "
+                    + IDEMPOTENCY_HINT
     )
     public CreateConversationResult createConversation(CreateConversationArgs args) {
-        Map<String, Object> consumerPayload = Map.of(
-                "firstName", args.firstName(),
-                "lastName", args.lastName(),
-                "brandId", brandId,
-                "acr", "0"
-        );
+        Accounts.Account account = accounts.get(args.accountId());
+        String consumer = account.scope(args.consumerId());
+        return idempotency.execute(CREATE_CONVERSATION, consumer, args.idempotencyKey(), args, () -> {
+            // A returning consumer with an unchanged profile needs no upsert
+            Map<String, Object> profile = consumerPayload(args, account.id());
+            boolean upToDate = profiles.isCurrent(consumer, profile);
+            if (!upToDate) {
+                LivePersonResponse.ConsumerResponse consumerRes;
+                try {
+                    consumerRes = account.client().putConsumer(args.consumerId(), profile);
+                } catch (RuntimeException e) {
+                    // LivePerson may have applied it anyway; an older profile remembered here must not skip the next PUT
+                    profiles.forget(consumer);
+                    throw e;
+                }
+                profiles.remember(consumer, profile);
+                log.debug("putConsumer completed: {}", consumerRes);
+            }
 
-        log.info("putConsumer start");
-        LivePersonResponse.ConsumerResponse consumerRes = lp.putConsumer(args.consumerId(), consumerPayload);
-        log.info("putConsumer completed: {}", consumerRes);
+            try {
+                LivePersonResponse.ConversationResponse conv = account.client().createConversation(args.consumerId(),
+                        CONVERSATION_BODY, IdempotencyCache.requestId(CREATE_CONVERSATION, consumer, args.idempotencyKey()));
+                log.debug("createConversation completed: {}", conv);
+                return createdResult(conv);
+            } catch (HttpClientErrorException e) {
+                if (upToDate) {
+                    // LivePerson may no longer know the consumer; upsert again on the next attempt
+                    profiles.forget(consumer);
+                }
+                throw e;
+            }
+        });
+    }
 
-        LivePersonResponse.ConversationResponse conv = lp.createConversation(
-                args.consumerId(),
-                Map.of("channelType", "MESSAGING")
-        );
-        log.info("createConversation completed: {}", conv);
+    @Tool(
+            name = SEND_MESSAGE,
+            description = "Publish a PLAIN_TEXT message via REST API. If dialogId omitted, we'll resolve it from the conversation. "
+                    + IDEMPOTENCY_HINT
+    )
+    public SendMessageResult sendMessage(SendMessageArgs args) {
+        Accounts.Account account = accounts.get(args.accountId());
+        String consumer = account.scope(args.consumerId());
+        return idempotency.execute(SEND_MESSAGE, consumer, args.idempotencyKey(), args, () -> {
+            String dialogId = resolveDialogId(account.client(), consumer, args.consumerId(), args.conversationId());
+            LivePersonResponse.PublishMessageResponse res = account.client().publishMessage(args.consumerId(),
+                    args.conversationId(), dialogId, messageBody(args.text()),
+                    IdempotencyCache.requestId(SEND_MESSAGE, consumer, args.idempotencyKey()));
+            history.markStale(consumer, args.conversationId());
+            return new SendMessageResult(res.conversationId(), res.dialogId(), res.messageId());
+        });
+    }
 
-        String conversationId = conv.resolvedId();
-        String mainDialogId = conversationId; // fallback
+    @Tool(
+            name = "get_messages",
+            description = "Read the messages of a conversation, oldest first. Pass the nextCursor of the previous call as "
+                    + "cursor to receive only messages published since then; omit it to start from the beginning. "
+                    + "limit defaults to " + DEFAULT_PAGE_SIZE + "; hasMore tells whether another call would return more."
+    )
+    public GetMessagesResult getMessages(GetMessagesArgs args) {
+        Accounts.Account account = accounts.get(args.accountId());
+        String consumer = account.scope(args.consumerId());
+        long after = args.cursor() != null ? args.cursor() : -1;
+        int limit = args.limit() != null ? args.limit() : DEFAULT_PAGE_SIZE;
+        ConversationHistory.Page page = history.read(account.client(), consumer, args.consumerId(), args.conversationId(),
+                after, limit);
+        return new GetMessagesResult(args.conversationId(), page.messages(), page.nextCursor(), page.hasMore());
+    }
 
-        List<LivePersonResponse.ConversationResponse.Dialog> dialogs = conv.dialogs();
-        if (dialogs != null && !dialogs.isEmpty()) {
-            String id = dialogs.getFirst().id();
-            if (id != null) {
-                mainDialogId = id;
-            }
-        }
-        return new CreateConversationResult(conversationId, mainDialogId, "CREATED");
+    @Tool(
+            name = "create_conversations",
+            description = "Create several conversations in one call. Items are processed in parallel; the result lists "
+                    + "conversationId and mainDialogId per item, or an error for items that failed."
+    )
+    public BatchResult<CreateConversationResult> createConversations(CreateConversationsArgs args) {
+        return batchRunner.run(args.items(), this::createConversation);
     }
 
     @Tool(
-            name = "send_message",
-            description = "Publish a PLAIN_TEXT message via REST API. If dialogId omitted, we'll resolve it from the conversation."
+            name = "send_messages",
+            description = "Publish PLAIN_TEXT messages to several conversations in one call. Items are processed in "
+                    + "parallel; the result lists the messageId per item, or an error for items that failed."
     )
-    public SendMessageResult sendMessage(SendMessageArgs args) {
-        Map<String, Object> body = Map.of(
-                "type", "PLAIN_TEXT",
-                "content", Map.of("text", args.text())
-        );
-        LivePersonResponse.PublishMessageResponse res =
-                lp.publishMessage(args.consumerId(), args.conversationId(), body);
-        return new SendMessageResult(res.conversationId(), res.dialogId(), res.messageId());
+    public BatchResult<SendMessageResult> sendMessages(SendMessagesArgs args) {
+        return batchRunner.run(args.items(), this::sendMessage);
     }
 
     @Tool(
-            name = "close_conversation",
-            description = "Close a conversation via REST API using StageUpdate."
+            name = CLOSE_CONVERSATION,
+            description = "Close a conversation via REST API using StageUpdate. " + IDEMPOTENCY_HINT
     )
     public CloseConversationResult closeConversation(CloseConversationArgs args) {
-        // Needs headers for ETag — use a method that returns typed ResponseEntity
-        ResponseEntity<LivePersonResponse.ConversationResponse> entity =
-                lp.getConversationEntity(args.consumerId(), args.conversationId());
-        String etag = entity.getHeaders().getFirst("ETag");
+        Accounts.Account account = accounts.get(args.accountId());
+        String consumer = account.scope(args.consumerId());
+        return idempotency.execute(CLOSE_CONVERSATION, consumer, args.idempotencyKey(), args,
+                () -> close(account.client(), consumer, args));
+    }
 
-        lp.closeConversation(args.consumerId(), args.conversationId(), etag);
+    private CloseConversationResult close(LivePersonRestClient lp, String consumer, CloseConversationArgs args) {
+        // The registry holds the ETag of the last response we saw; only read the conversation if we have none
+        String etag = conversations.etag(consumer, args.conversationId());
+        if (etag == null) {
+            etag = fetchEtag(lp, args.consumerId(), args.conversationId());
+        }
+
+        try {
+            lp.closeConversation(args.consumerId(), args.conversationId(), etag);
+        } catch (HttpClientErrorException e) {
+            if (!e.getStatusCode().isSameCodeAs(HttpStatus.PRECONDITION_FAILED)) {
+                throw e;
+            }
+            log.info("Stale ETag for conversation {}, re-reading before close", args.conversationId());
+            lp.closeConversation(args.consumerId(), args.conversationId(),
+                    fetchEtag(lp, args.consumerId(), args.conversationId()));
+        }
         return new CloseConversationResult(args.conversationId(), "CLOSED");
     }
 
+    private String fetchEtag(LivePersonRestClient lp, String consumerId, String conversationId) {
+        ResponseEntity<LivePersonResponse.ConversationResponse> entity = lp.getConversationEntity(consumerId, conversationId);
+        return entity.getHeaders().getETag();
+    }
+
+    /** Dialog of a conversation: from the registry, else read from LivePerson, else the conversation id itself. */
+    private String resolveDialogId(LivePersonRestClient lp, String consumer, String consumerId, String conversationId) {
+        String dialogId = conversations.dialogId(consumer, conversationId);
+        if (dialogId == null) {
+            LivePersonResponse.ConversationResponse conv = lp.getConversationEntity(consumerId, conversationId).getBody();
+            dialogId = conv != null ? conv.mainDialogId() : null;
+        }
+        return dialogId != null ? dialogId : conversationId;
+    }
+
+    // === Request/response mapping shared with the async tools ===
+    static final String CREATE_CONVERSATION = "create_conversation";
+    static final String SEND_MESSAGE = "send_message";
+    static final String CLOSE_CONVERSATION = "close_conversation";
+    static final String IDEMPOTENCY_HINT = "Pass a unique idempotencyKey to make retries safe: a repeated call with "
+            + "the same key returns the first result instead of acting twice.";
+    static final String ACCOUNT_PARAM = "LivePerson account (brand) id; omit it for the server's default account";
+    static final int DEFAULT_PAGE_SIZE = 50;
+
+    static final Map<String, Object> CONVERSATION_BODY = Map.of("channelType", "MESSAGING");
+
+    static Map<String, Object> consumerPayload(CreateConversationArgs args, String brandId) {
+        return Map.of(
+                "firstName", args.firstName(),
+                "lastName", args.lastName(),
+                "brandId", brandId,
+                "acr", "0"
+        );
+    }
+
+    static Map<String, Object> messageBody(String text) {
+        return Map.of(
+                "type", "PLAIN_TEXT",
+                "content", Map.of("text", text)
+        );
+    }
+
+    static CreateConversationResult createdResult(LivePersonResponse.ConversationResponse conv) {
+        String conversationId = conv.resolvedId();
+        String mainDialogId = conv.mainDialogId();
+        return new CreateConversationResult(conversationId, mainDialogId != null ? mainDialogId : conversationId, "CREATED");
+    }
+
     // === Records ===
-    public record CreateConversationArgs(String consumerId, String firstName, String lastName) {}
+    public record CreateConversationArgs(String consumerId, String firstName, String lastName,
+                                         @ToolParam(required = false) String idempotencyKey,
+                                         @ToolParam(required = false, description = ACCOUNT_PARAM) String accountId) {}
     public record CreateConversationResult(String conversationId, String dialogId, String status) {}
-    public record SendMessageArgs(String consumerId, String conversationId, String text) {}
+    public record SendMessageArgs(String consumerId, String conversationId, String text,
+                                  @ToolParam(required = false) String idempotencyKey,
+                                  @ToolParam(required = false, description = ACCOUNT_PARAM) String accountId) {}
     public record SendMessageResult(String conversationId, String dialogId, String messageId) {}
-    public record CloseConversationArgs(String consumerId, String conversationId) {}
+    public record CloseConversationArgs(String consumerId, String conversationId,
+                                        @ToolParam(required = false) String idempotencyKey,
+                                        @ToolParam(required = false, description = ACCOUNT_PARAM) String accountId) {}
     public record CloseConversationResult(String conversationId, String status) {}
+    public record GetMessagesArgs(String consumerId, String conversationId,
+                                  @ToolParam(required = false) Long cursor,
+                                  @ToolParam(required = false) Integer limit,
+                                  @ToolParam(required = false, description = ACCOUNT_PARAM) String accountId) {}
+    public record GetMessagesResult(String conversationId, List<LivePersonResponse.MessagesResponse.Message> messages,
+                                    long nextCursor, boolean hasMore) {}
+    public record CreateConversationsArgs(List<CreateConversationArgs> items) {}
+    public record SendMessagesArgs(List<SendMessageArgs> items) {}
+    public record BatchResult<R>(int succeeded, int failed, List<BatchItem<R>> items) {}
+    public record BatchItem<R>(int index, R result, String error) {}
 }
@@ -0,0 +1,150 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates tool calls that carry an idempotency key, so a client retrying after a lost response gets the original
+ * result instead of a second conversation or message.
+ * <p>
+ * Keys are scoped by tool and consumer. The first call with a key runs; calls with the same key arriving while it runs
+ * wait for its outcome (single-flight), and later ones replay the result for {@code lp.idempotency.ttl-seconds}. A failed
+ * call is forgotten so it can be retried. Reusing a key with different arguments is rejected.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Cache<String, Entry> entries;
+    private final Counter executed;
+    private final Counter coalesced;
+    private final Counter replayed;
+
+    public IdempotencyCache(MeterRegistry meterRegistry,
+                            @Value("${lp.idempotency.max-size:10000}") long maxSize,
+                            @Value("${lp.idempotency.ttl-seconds:600}") long ttlSeconds) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.executed = counter(meterRegistry, "executed");
+        this.coalesced = counter(meterRegistry, "coalesced");
+        this.replayed = counter(meterRegistry, "replayed");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("lp.idempotency.calls").tag("outcome", outcome)
+                .description("Tool calls carrying an idempotency key").register(meterRegistry);
+    }
+
+    /** Runs {@code call} once per key; without a key it simply runs. */
+    public <R> R execute(String tool, String consumerId, String key, Object args, Supplier<R> call) {
+        if (key == null) {
+            return call.get();
+        }
+        String scope = scope(tool, consumerId, key);
+        Entry mine = new Entry(args, new CompletableFuture<>());
+        Entry existing = claim(scope, mine);
+        if (existing != null) {
+            return await(existing.result());
+        }
+        try {
+            R result = call.get();
+            mine.result().complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            entries.asMap().remove(scope, mine);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Non-blocking variant of {@link #execute}. */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<R> executeAsync(String tool, String consumerId, String key, Object args,
+                                                 Supplier<CompletableFuture<R>> call) {
+        if (key == null) {
+            return call.get();
+        }
+        String scope = scope(tool, consumerId, key);
+        Entry mine = new Entry(args, new CompletableFuture<>());
+        Entry existing = claim(scope, mine);
+        if (existing != null) {
+            return existing.result().thenApply(result -> (R) result);
+        }
+        CompletableFuture<R> started;
+        try {
+            started = call.get();
+            if (started == null) {
+                throw new IllegalStateException("Tool call returned no future");
+            }
+        } catch (RuntimeException | Error e) {
+            // Waiters on this key would otherwise hang on a result that never comes
+            entries.asMap().remove(scope, mine);
+            mine.result().completeExceptionally(e);
+            return CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((result, error) -> {
+            if (error != null) {
+                entries.asMap().remove(scope, mine);
+                mine.result().completeExceptionally(error);
+            } else {
+                mine.result().complete(result);
+            }
+        });
+        return mine.result().thenApply(result -> (R) result);
+    }
+
+    /**
+     * {@code Request-ID} for the upstream call made on behalf of a keyed tool call: a name-based UUID, so a retried call
+     * sends the same id. {@code null} without a key, meaning a random id.
+     */
+    static String requestId(String tool, String consumerId, String key) {
+        if (key == null) {
+            return null;
+        }
+        return UUID.nameUUIDFromBytes(scope(tool, consumerId, key).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /** Registers {@code mine} under the scope, or returns the entry of an earlier call with the same key. */
+    private Entry claim(String scope, Entry mine) {
+        Entry existing = entries.asMap().putIfAbsent(scope, mine);
+        if (existing == null) {
+            executed.increment();
+            return null;
+        }
+        if (!existing.args().equals(mine.args())) {
+            throw new IllegalArgumentException("Idempotency key was already used with different arguments");
+        }
+        (existing.result().isDone() ? replayed : coalesced).increment();
+        return existing;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R await(CompletableFuture<Object> result) {
+        try {
+            return (R) result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String scope(String tool, String consumerId, String key) {
+        return tool + '\n' + consumerId + '\n' + key;
+    }
+
+    private record Entry(Object args, CompletableFuture<Object> result) {}
+}
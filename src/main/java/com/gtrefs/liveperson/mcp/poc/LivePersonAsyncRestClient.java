@@ -0,0 +1,215 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtrefs.liveperson.mcp.poc.auth.AppJwtService;
+import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService;
+import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService.ConsumerIdentity;
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.Upstream;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link LivePersonRestClient}, used when the MCP server runs in ASYNC mode.
+ * Identity resolution, the App JWT and the HTTP exchange are all composed as futures, so no thread is parked
+ * while LivePerson answers.
+ */
+@Component
+@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+public class LivePersonAsyncRestClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(LivePersonAsyncRestClient.class);
+
+    private final LivePersonHttpClients httpClients;
+    private final ObjectMapper objectMapper;
+    private final MessagingUris uris;
+    private final String accountId;
+    private final String clientSource;
+    private final AppJwtService appJwtService;
+    private final ConsumerJwsService consumerJwsService;
+    private final ConversationRegistry conversations;
+    private final UpstreamMetrics metrics;
+    private final UpstreamRetry retry;
+
+    public LivePersonAsyncRestClient(LivePersonHttpClients httpClients,
+                                     ObjectMapper objectMapper,
+                                     @Value("${lp.domains.messaging}") String restDomain,
+                                     @Value("${lp.account-id}") String accountId,
+                                     @Value("${lp.client.client-source}") String clientSource,
+                                     @Lazy AppJwtService appJwtService,
+                                     @Lazy ConsumerJwsService consumerJwsService,
+                                     ConversationRegistry conversations,
+                                     UpstreamMetrics metrics,
+                                     UpstreamRetry retry) {
+        this.httpClients = httpClients;
+        this.objectMapper = objectMapper;
+        this.uris = new MessagingUris(httpClients.origin(Upstream.MESSAGING, restDomain));
+        this.accountId = accountId;
+        this.clientSource = clientSource;
+        this.appJwtService = appJwtService;
+        this.consumerJwsService = consumerJwsService;
+        this.conversations = conversations;
+        this.metrics = metrics;
+        this.retry = retry;
+    }
+
+    private CompletableFuture<Credentials> credentials(String consumerId) {
+        return consumerJwsService.getConsumerJwsAsync(consumerId)
+                .thenCombine(appJwtService.getAppJwtAsync(), Credentials::new);
+    }
+
+    // --- Consumers ---
+    public CompletableFuture<LivePersonResponse.ConsumerResponse> putConsumer(String consumerId, Map<String, Object> body) {
+        return credentials(consumerId)
+                .thenCompose(c -> retry.callAsync(Upstream.MESSAGING, "putConsumer", () -> exchange("putConsumer", "PUT",
+                        uris.consumer(c.identity().lpConsumerId()), c, body, null, null, LivePersonResponse.ConsumerResponse.class)))
+                .thenApply(ResponseEntity::getBody);
+    }
+
+    // --- Conversations ---
+    public CompletableFuture<LivePersonResponse.ConversationResponse> createConversation(String consumerId, Map<String, Object> body,
+                                                                                         String requestId) {
+        return credentials(consumerId)
+                .thenCompose(c -> exchange("createConversation", "POST", uris.consumerConversations(c.identity().lpConsumerId()),
+                        c, body, null, requestId, LivePersonResponse.ConversationResponse.class))
+                .thenApply(entity -> {
+                    conversations.record(scope(consumerId), entity.getBody(), entity.getHeaders());
+                    return entity.getBody();
+                });
+    }
+
+    public CompletableFuture<ResponseEntity<LivePersonResponse.ConversationResponse>> getConversationEntity(String consumerId, String convId) {
+        return credentials(consumerId)
+                .thenCompose(c -> retry.callAsync(Upstream.MESSAGING, "getConversation", () -> exchange("getConversation", "GET",
+                        uris.conversation(convId), c, null, null, null, LivePersonResponse.ConversationResponse.class)))
+                .whenComplete((entity, error) -> {
+                    if (entity != null) {
+                        conversations.record(scope(consumerId), entity.getBody(), entity.getHeaders());
+                    }
+                });
+    }
+
+    public CompletableFuture<LivePersonResponse.CloseConversationResponse> closeConversation(String consumerId, String convId, String etag) {
+        return credentials(consumerId)
+                .thenCompose(c -> {
+                    Supplier<CompletableFuture<ResponseEntity<LivePersonResponse.CloseConversationResponse>>> close = () -> exchange(
+                            "closeConversation", "PATCH", uris.conversation(convId), c, LivePersonRestClient.CLOSE_STAGE, etag, null,
+                            LivePersonResponse.CloseConversationResponse.class);
+                    // Only the ETag-guarded close is safe to repeat
+                    return etag != null ? retry.callAsync(Upstream.MESSAGING, "closeConversation", close) : close.get();
+                })
+                .thenApply(entity -> {
+                    conversations.forget(scope(consumerId), convId);
+                    return entity.getBody();
+                });
+    }
+
+    // --- Dialogs & Messages ---
+    public CompletableFuture<LivePersonResponse.PublishMessageResponse> publishMessage(String consumerId, String convId,
+                                                                                       String dialogId, Map<String, Object> body,
+                                                                                       String requestId) {
+        return credentials(consumerId)
+                .thenCompose(c -> exchange("publishMessage", "POST", uris.messages(convId, dialogId),
+                        c, body, null, requestId, LivePersonResponse.PublishMessageResponse.class))
+                .thenApply(entity -> {
+                    conversations.recordPublish(scope(consumerId), convId, dialogId, entity.getHeaders());
+                    return entity.getBody();
+                });
+    }
+
+    private <T> CompletableFuture<ResponseEntity<T>> exchange(String operation, String method, URI uri,
+                                                              Credentials credentials, Object body, String ifMatch,
+                                                              String requestId, Class<T> responseType) {
+        HttpRequest.Builder request = httpClients.newRequest(Upstream.MESSAGING, uri)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(write(body)))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.AUTHORIZATION, credentials.appJwt())
+                .header("LP-ON-BEHALF", credentials.identity().token())
+                .header("Brand-ID", accountId)
+                .header("Client-source", clientSource)
+                .header("Request-ID", requestId != null ? requestId : MessagingUris.requestId());
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+
+        return metrics.timeAsync(Upstream.MESSAGING, operation, () -> httpClients
+                .sendAsync(Upstream.MESSAGING, request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> toEntity(method, uri, response, responseType)));
+    }
+
+    private <T> ResponseEntity<T> toEntity(String method, URI uri, HttpResponse<byte[]> response, Class<T> responseType) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach(headers::addAll);
+
+        if (status.isError()) {
+            logger.debug("{} {} failed with {}", method, uri, status);
+            throw toException(status, headers, response.body());
+        }
+
+        byte[] payload = response.body();
+        T body = payload == null || payload.length == 0 ? null : read(payload, responseType);
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    /** Mirrors the exceptions {@code RestClient.retrieve()} raises, so both client flavours fail the same way. */
+    private static RestClientResponseException toException(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+        HttpStatus resolved = HttpStatus.resolve(status.value());
+        String statusText = resolved != null ? resolved.getReasonPhrase() : "";
+        if (status.is4xxClientError()) {
+            return HttpClientErrorException.create(status, statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        if (status.is5xxServerError()) {
+            return HttpServerErrorException.create(status, statusText, headers, body, StandardCharsets.UTF_8);
+        }
+        return new RestClientResponseException(status.value() + " " + statusText, status, statusText, headers, body,
+                StandardCharsets.UTF_8);
+    }
+
+    private byte[] write(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T read(byte[] payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String scope(String consumerId) {
+        return Accounts.Account.scope(accountId, consumerId);
+    }
+
+    private record Credentials(ConsumerIdentity identity, String appJwt) {}
+}
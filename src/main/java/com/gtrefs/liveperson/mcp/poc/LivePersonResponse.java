@@ -1,7 +1,9 @@
 package com.gtrefs.liveperson.mcp.poc;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 
 public sealed interface LivePersonResponse {
 
@@ -18,12 +20,72 @@ public sealed interface LivePersonResponse {
         public String resolvedId() {
             return id != null ? id : conversationId;
         }
+
+        /** Id of the first dialog, or {@code null} if the response carries none. */
+        public String mainDialogId() {
+            if (dialogs == null || dialogs.isEmpty()) {
+                return null;
+            }
+            return dialogs.getFirst().id();
+        }
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     record PublishMessageResponse(String conversationId, String dialogId, String messageId) implements LivePersonResponse {
     }
 
+    /** Messages of a conversation as returned by {@code get_messages}, mapped from {@link ConversationSearchResponse}. */
+    record MessagesResponse(List<Message> messages) implements LivePersonResponse {
+        /** A published message; {@code sequence} increases monotonically within the conversation. */
+        public record Message(long sequence, String messageId, String originatorRole, String text, Long serverTimestamp) {
+        }
+    }
+
+    /** Messaging Interactions conversation search; a conversation id matches at most one record. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ConversationSearchResponse(List<ConversationHistoryRecord> conversationHistoryRecords)
+            implements LivePersonResponse {
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public record ConversationHistoryRecord(List<MessageRecord> messageRecords, List<Participant> consumerParticipants) {
+
+            public boolean hasConsumer(String lpConsumerId) {
+                return lpConsumerId != null && consumerParticipants != null
+                        && consumerParticipants.stream().anyMatch(p -> lpConsumerId.equals(p.participantId()));
+            }
+
+            /** Messages by sequence, oldest first. */
+            public List<MessagesResponse.Message> messages() {
+                if (messageRecords == null) {
+                    return List.of();
+                }
+                return messageRecords.stream()
+                        .sorted(Comparator.comparingLong(MessageRecord::seq))
+                        .map(MessageRecord::toMessage)
+                        .toList();
+            }
+        }
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public record MessageRecord(long seq, String messageId, String sentBy, MessageData messageData, Long timeL) {
+
+            MessagesResponse.Message toMessage() {
+                String text = messageData != null && messageData.msg() != null ? messageData.msg().text() : null;
+                String role = sentBy != null ? sentBy.toUpperCase(Locale.ROOT) : null;
+                return new MessagesResponse.Message(seq, messageId, role, text, timeL);
+            }
+        }
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public record MessageData(Text msg) {}
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public record Text(String text) {}
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public record Participant(String participantId) {}
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     record CloseConversationResponse(String id, String status) implements LivePersonResponse {
     }
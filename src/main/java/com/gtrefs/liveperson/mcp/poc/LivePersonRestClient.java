@@ -3,138 +3,220 @@ package com.gtrefs.liveperson.mcp.poc;
 import com.gtrefs.liveperson.mcp.poc.auth.AppJwtService;
 import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService;
 import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService.ConsumerIdentity;
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.Upstream;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 
-import java.net.http.HttpClient;
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Component
 public class LivePersonRestClient {
 
     private static final Logger logger = LoggerFactory.getLogger(LivePersonRestClient.class);
 
+    static final Map<String, Object> CLOSE_STAGE = Map.of("stage", "CLOSE");
+    static final List<String> SEARCH_CONTENT = List.of("messageRecords", "consumerParticipants");
+
     private final RestClient restClient;
-    private final String restDomain;
+    private final RestClient historyClient;
+    private final MessagingUris uris;
+    private final URI conversationSearch;
     private final String accountId;
-    private final String clientSource;
     private final AppJwtService appJwtService;
     private final ConsumerJwsService consumerJwsService;
+    private final ConversationRegistry conversations;
+    private final UpstreamMetrics metrics;
+    private final UpstreamRetry retry;
 
-    public LivePersonRestClient(RestClient.Builder restClientBuilder,
+    public LivePersonRestClient(LivePersonHttpClients httpClients,
                                 @Value("${lp.domains.messaging}") String restDomain,
                                 @Value("${lp.account-id}") String accountId,
                                 @Value("${lp.client.client-source}") String clientSource,
-                                AppJwtService appJwtService,
-                                ConsumerJwsService consumerJwsService) {
-        this.restClient = restClientBuilder.requestFactory(new JdkClientHttpRequestFactory(HttpClient.newHttpClient())).build();
-        this.restDomain = restDomain;
+                                @Value("${lp.domains.messaging-history:}") String historyDomain,
+                                @Lazy AppJwtService appJwtService,
+                                @Lazy ConsumerJwsService consumerJwsService,
+                                ConversationRegistry conversations,
+                                UpstreamMetrics metrics,
+                                UpstreamRetry retry) {
+        // Headers that never change are set once as client defaults instead of being rebuilt per request
+        this.restClient = httpClients.restClient(Upstream.MESSAGING).mutate()
+                .defaultHeaders(h -> {
+                    h.setContentType(MediaType.APPLICATION_JSON);
+                    h.set("Brand-ID", accountId);
+                    h.set("Client-source", clientSource);
+                })
+                .build();
+        this.uris = new MessagingUris(httpClients.origin(Upstream.MESSAGING, restDomain));
+        this.historyClient = httpClients.restClient(Upstream.MESSAGING_HISTORY).mutate()
+                .defaultHeaders(h -> h.setContentType(MediaType.APPLICATION_JSON))
+                .build();
+        this.conversationSearch = historyDomain == null || historyDomain.isBlank() ? null
+                : URI.create(httpClients.origin(Upstream.MESSAGING_HISTORY, historyDomain)
+                        + "/messaging_history/api/account/" + accountId + "/conversations/conversation/search");
         this.accountId = accountId;
-        this.clientSource = clientSource;
         this.appJwtService = appJwtService;
         this.consumerJwsService = consumerJwsService;
+        this.conversations = conversations;
+        this.metrics = metrics;
+        this.retry = retry;
     }
 
-    private HttpHeaders baseHeaders(String consumerId) {
-        ConsumerIdentity consumerJws = consumerJwsService.getConsumerJws(consumerId);
-        String appJwt = appJwtService.getAppJwt(); // If still reactive
-
-        logger.info("AppJwt: {}", appJwt);
-        logger.info("ConsumerJws: {}", consumerJws);
-
-        var headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.add("Authorization", appJwt);
-        headers.add("LP-ON-BEHALF", consumerJws.token());
-        headers.add("Brand-ID", accountId);
-        headers.add("Client-source", clientSource);
-        headers.add("Request-ID", UUID.randomUUID().toString());
-        return headers;
+    /** Per-request headers for an identity that has already been resolved. */
+    Consumer<HttpHeaders> authHeaders(ConsumerIdentity identity) {
+        return authHeaders(identity, null);
     }
 
-    private String baseUrl() {
-        return "https://" + restDomain + "/messaging";
+    /** As {@link #authHeaders(ConsumerIdentity)}, sending {@code requestId} as {@code Request-ID} unless it is null. */
+    Consumer<HttpHeaders> authHeaders(ConsumerIdentity identity, String requestId) {
+        String appJwt = appJwtService.getAppJwt();
+        logger.debug("Calling Messaging as {}", identity);
+        return h -> {
+            h.set(HttpHeaders.AUTHORIZATION, appJwt);
+            h.set("LP-ON-BEHALF", identity.token());
+            h.set("Request-ID", requestId != null ? requestId : MessagingUris.requestId());
+        };
     }
 
     // --- Consumers ---
     public LivePersonResponse.ConsumerResponse putConsumer(String consumerId, Map<String, Object> body) {
         ConsumerIdentity identity = consumerJwsService.getConsumerJws(consumerId);
-        String url = baseUrl() + "/v1/consumers/" + identity.lpConsumerId();
-
-        return restClient.put()
-                .uri(url)
-                .headers(h -> h.addAll(baseHeaders(consumerId)))
-                .body(body)
-                .retrieve()
-                .body(LivePersonResponse.ConsumerResponse.class);
+
+        return retry.call(Upstream.MESSAGING, "putConsumer", () -> metrics.time(Upstream.MESSAGING, "putConsumer",
+                () -> restClient.put()
+                        .uri(uris.consumer(identity.lpConsumerId()))
+                        .headers(authHeaders(identity))
+                        .body(body)
+                        .retrieve()
+                        .toEntity(LivePersonResponse.ConsumerResponse.class))).getBody();
     }
 
     // --- Conversations ---
-    public LivePersonResponse.ConversationResponse createConversation(String consumerId, Map<String, Object> body) {
+    public LivePersonResponse.ConversationResponse createConversation(String consumerId, Map<String, Object> body,
+                                                                      String requestId) {
         ConsumerIdentity identity = consumerJwsService.getConsumerJws(consumerId);
-        String url = baseUrl() + "/v1/consumers/" + identity.lpConsumerId() + "/conversations";
 
-        LivePersonResponse.ConversationResponse result = restClient.post()
-                .uri(url)
-                .headers(h -> h.addAll(baseHeaders(consumerId)))
-                .body(body)
-                .retrieve()
-                .body(LivePersonResponse.ConversationResponse.class);
-
-        logger.info("Create conversation: {}", result);
-        return result;
+        // Not retried: a second POST would open a second conversation
+        ResponseEntity<LivePersonResponse.ConversationResponse> result = metrics.time(Upstream.MESSAGING, "createConversation",
+                () -> restClient.post()
+                        .uri(uris.consumerConversations(identity.lpConsumerId()))
+                        .headers(authHeaders(identity, requestId))
+                        .body(body)
+                        .retrieve()
+                        .toEntity(LivePersonResponse.ConversationResponse.class));
+
+        logger.debug("Create conversation: {}", result.getBody());
+        conversations.record(scope(consumerId), result.getBody(), result.getHeaders());
+        return result.getBody();
     }
 
     public LivePersonResponse.ConversationResponse getConversationRaw(String consumerId, String convId) {
-        String url = baseUrl() + "/v1/conversations/" + convId;
-        return restClient.get()
-                .uri(url)
-                .headers(h -> h.addAll(baseHeaders(consumerId)))
-                .retrieve()
-                .body(LivePersonResponse.ConversationResponse.class);
+        ConsumerIdentity identity = consumerJwsService.getConsumerJws(consumerId);
+        return retry.call(Upstream.MESSAGING, "getConversation", () -> metrics.time(Upstream.MESSAGING, "getConversation",
+                () -> restClient.get()
+                        .uri(uris.conversation(convId))
+                        .headers(authHeaders(identity))
+                        .retrieve()
+                        .toEntity(LivePersonResponse.ConversationResponse.class))).getBody();
     }
 
     public LivePersonResponse.CloseConversationResponse closeConversation(String consumerId, String convId, String etag) {
-        String url = baseUrl() + "/v1/conversations/" + convId;
-        Map<String, Object> stageUpdate = Map.of("stage", "CLOSE");
-
-        return restClient.patch()
-                .uri(url)
-                .headers(h -> {
-                    h.addAll(baseHeaders(consumerId));
-                    h.add("If-Match", etag);
-                })
-                .body(stageUpdate)
-                .retrieve()
-                .body(LivePersonResponse.CloseConversationResponse.class);
+        ConsumerIdentity identity = consumerJwsService.getConsumerJws(consumerId);
+
+        Supplier<ResponseEntity<LivePersonResponse.CloseConversationResponse>> close = () -> metrics.time(Upstream.MESSAGING, "closeConversation",
+                () -> restClient.patch()
+                        .uri(uris.conversation(convId))
+                        .headers(authHeaders(identity))
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .body(CLOSE_STAGE)
+                        .retrieve()
+                        .toEntity(LivePersonResponse.CloseConversationResponse.class));
+        // Safe to repeat only when guarded by an ETag: a replay after a lost response fails with 412 instead of re-applying
+        var result = etag != null ? retry.call(Upstream.MESSAGING, "closeConversation", close) : close.get();
+        conversations.forget(scope(consumerId), convId);
+        return result.getBody();
     }
 
     // --- Dialogs & Messages ---
-    public LivePersonResponse.PublishMessageResponse publishMessage(String consumerId, String convId, Map<String, Object> body) {
-        String url = baseUrl() + "/v1/conversations/" + convId + "/dialogs/" + convId + "/messages";
-
-        return restClient.post()
-                .uri(url)
-                .headers(h -> h.addAll(baseHeaders(consumerId)))
-                .body(body)
-                .retrieve()
-                .body(LivePersonResponse.PublishMessageResponse.class);
+    public LivePersonResponse.PublishMessageResponse publishMessage(String consumerId, String convId, String dialogId,
+                                                                    Map<String, Object> body, String requestId) {
+        ConsumerIdentity identity = consumerJwsService.getConsumerJws(consumerId);
+
+        // Not retried: a second POST would publish the message twice
+        ResponseEntity<LivePersonResponse.PublishMessageResponse> result = metrics.time(Upstream.MESSAGING, "publishMessage",
+                () -> restClient.post()
+                        .uri(uris.messages(convId, dialogId))
+                        .headers(authHeaders(identity, requestId))
+                        .body(body)
+                        .retrieve()
+                        .toEntity(LivePersonResponse.PublishMessageResponse.class));
+        conversations.recordPublish(scope(consumerId), convId, dialogId, result.getHeaders());
+        return result.getBody();
+    }
+
+    /**
+     * Reads up to {@code limit} messages of a conversation published after {@code afterSequence}, oldest first.
+     * <p>
+     * Messaging REST has no history read, so this searches the conversation through the Messaging Interactions API.
+     * That API answers with the App JWT alone for any conversation of the brand, so the transcript is only returned
+     * when {@code consumerId} is one of the conversation's consumers. It returns the whole transcript; the page is cut
+     * here.
+     */
+    public LivePersonResponse.MessagesResponse getMessages(String consumerId, String convId, long afterSequence, int limit) {
+        if (conversationSearch == null) {
+            throw new IllegalStateException("get_messages needs lp.domains.messaging-history (LP_MSG_HIST_DOMAIN)");
+        }
+        ConsumerIdentity identity = consumerJwsService.getConsumerJws(consumerId);
+        Map<String, Object> query = Map.of("conversationId", convId, "contentToRetrieve", SEARCH_CONTENT);
+        // A search is a read, safe to repeat
+        LivePersonResponse.ConversationSearchResponse result = retry.call(Upstream.MESSAGING_HISTORY, "searchConversation",
+                () -> metrics.time(Upstream.MESSAGING_HISTORY, "searchConversation", () -> historyClient.post()
+                        .uri(conversationSearch)
+                        .header(HttpHeaders.AUTHORIZATION, appJwtService.getAppJwt())
+                        .body(query)
+                        .retrieve()
+                        .toEntity(LivePersonResponse.ConversationSearchResponse.class))).getBody();
+
+        if (result == null || result.conversationHistoryRecords() == null || result.conversationHistoryRecords().isEmpty()) {
+            // Not indexed yet, or unknown; either way there is nothing to show
+            return new LivePersonResponse.MessagesResponse(List.of());
+        }
+        var conversation = result.conversationHistoryRecords().getFirst();
+        if (!conversation.hasConsumer(identity.lpConsumerId())) {
+            throw new IllegalArgumentException("Unknown conversation '" + convId + "'");
+        }
+        return new LivePersonResponse.MessagesResponse(conversation.messages().stream()
+                .filter(message -> message.sequence() > afterSequence)
+                .limit(limit)
+                .toList());
     }
 
     public ResponseEntity<LivePersonResponse.ConversationResponse> getConversationEntity(String consumerId, String convId) {
-        String url = baseUrl() + "/v1/conversations/" + convId;
-        return restClient.get()
-                .uri(url)
-                .headers(h -> h.addAll(baseHeaders(consumerId)))
-                .retrieve()
-                .toEntity(LivePersonResponse.ConversationResponse.class);
+        ConsumerIdentity identity = consumerJwsService.getConsumerJws(consumerId);
+        ResponseEntity<LivePersonResponse.ConversationResponse> result = retry.call(Upstream.MESSAGING, "getConversation",
+                () -> metrics.time(Upstream.MESSAGING, "getConversation", () -> restClient.get()
+                        .uri(uris.conversation(convId))
+                        .headers(authHeaders(identity))
+                        .retrieve()
+                        .toEntity(LivePersonResponse.ConversationResponse.class)));
+        conversations.record(scope(consumerId), result.getBody(), result.getHeaders());
+        return result;
+    }
+
+    private String scope(String consumerId) {
+        return Accounts.Account.scope(accountId, consumerId);
     }
 }
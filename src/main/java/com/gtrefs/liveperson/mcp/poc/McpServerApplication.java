@@ -1,11 +1,15 @@
 package com.gtrefs.liveperson.mcp.poc;
 
+import com.gtrefs.liveperson.mcp.poc.metrics.ToolMetrics;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 public class McpServerApplication {
     public static void main(String[] args) {
@@ -13,9 +17,11 @@ public class McpServerApplication {
     }
 
     @Bean
-    ToolCallbackProvider conversationToolsProvider(ConversationTools tools) {
-        // Auto-expose @Tool methods as MCP tools
-        return MethodToolCallbackProvider.builder().toolObjects(tools).build();
+    @ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "SYNC", matchIfMissing = true)
+    ToolCallbackProvider conversationToolsProvider(ConversationTools tools, ToolMetrics toolMetrics) {
+        // Auto-expose @Tool methods as MCP tools, each timed by ToolMetrics
+        var callbacks = MethodToolCallbackProvider.builder().toolObjects(tools).build().getToolCallbacks();
+        return ToolCallbackProvider.from(Arrays.stream(callbacks).map(toolMetrics::instrument).toList());
     }
 
 }
@@ -0,0 +1,52 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import org.springframework.web.util.UriUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Messaging REST endpoints, with the constant part of each path built once. Ids are encoded as path segments, which
+ * returns the id itself when nothing needs escaping, and the result goes straight to {@link URI} so no template has
+ * to be parsed per request.
+ */
+final class MessagingUris {
+
+    private final String consumers;
+    private final String conversations;
+
+    MessagingUris(String origin) {
+        this.consumers = origin + "/messaging/v1/consumers/";
+        this.conversations = origin + "/messaging/v1/conversations/";
+    }
+
+    URI consumer(String lpConsumerId) {
+        return URI.create(consumers + segment(lpConsumerId));
+    }
+
+    URI consumerConversations(String lpConsumerId) {
+        return URI.create(consumers + segment(lpConsumerId) + "/conversations");
+    }
+
+    URI conversation(String conversationId) {
+        return URI.create(conversations + segment(conversationId));
+    }
+
+    URI messages(String conversationId, String dialogId) {
+        return URI.create(conversations + segment(conversationId) + "/dialogs/" + segment(dialogId) + "/messages");
+    }
+
+    /** A random v4 UUID for the {@code Request-ID} header; correlation only, so no need for {@code SecureRandom}. */
+    static String requestId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb).toString();
+    }
+
+    private static String segment(String id) {
+        return UriUtils.encodePathSegment(id, StandardCharsets.UTF_8);
+    }
+}
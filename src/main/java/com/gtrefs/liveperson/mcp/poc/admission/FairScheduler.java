@@ -0,0 +1,245 @@
+package com.gtrefs.liveperson.mcp.poc.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Admits tool calls under a global and a per-session concurrency limit. Calls that cannot run yet wait in a weighted
+ * fair queue across sessions (self-clocked fair queueing): each call gets a finish tag of
+ * {@code max(virtual time, the session's last tag) + cost}, and the smallest tag whose session has a free slot runs
+ * next. A session that floods the queue only pushes its own tags further out, so other sessions keep their share.
+ * <p>
+ * Rejections are fast: a full queue (globally or for the session) is refused at once, and a call still queued after
+ * {@code max-wait} is dropped instead of running late.
+ */
+public class FairScheduler {
+
+    private final int maxConcurrent;
+    private final int maxConcurrentPerSession;
+    private final int maxQueued;
+    private final int maxQueuedPerSession;
+    private final Duration maxWait;
+
+    private final Map<String, Session> sessions = new HashMap<>();
+    private final TreeSet<Waiter> queue = new TreeSet<>(
+            Comparator.comparingDouble(Waiter::finish).thenComparingLong(Waiter::seq));
+    private int running;
+    private double virtualTime;
+    private long seq;
+
+    private final Timer admittedWait;
+    private final Timer rejectedWait;
+    private final Map<Rejection.Reason, Counter> rejections = new HashMap<>();
+
+    public FairScheduler(MeterRegistry meterRegistry, int maxConcurrent, int maxConcurrentPerSession,
+                         int maxQueued, int maxQueuedPerSession, Duration maxWait) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxConcurrentPerSession = maxConcurrentPerSession;
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerSession = maxQueuedPerSession;
+        this.maxWait = maxWait;
+
+        this.admittedWait = waitTimer(meterRegistry, "admitted");
+        this.rejectedWait = waitTimer(meterRegistry, "rejected");
+        for (Rejection.Reason reason : Rejection.Reason.values()) {
+            rejections.put(reason, Counter.builder("lp.admission.rejections").tag("reason", reason.tag())
+                    .description("Tool calls refused by admission control").register(meterRegistry));
+        }
+        Gauge.builder("lp.admission.queued", this, scheduler -> scheduler.snapshot(false))
+                .description("Tool calls waiting for admission").register(meterRegistry);
+        Gauge.builder("lp.admission.running", this, scheduler -> scheduler.snapshot(true))
+                .description("Tool calls admitted and not yet finished").register(meterRegistry);
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("lp.admission.wait").tag("outcome", outcome)
+                .description("Time tool calls spent waiting for admission")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Blocks until the call may run and returns the permit to release when it is done.
+     *
+     * @throws Rejection if the queue is full or the call waited longer than {@code max-wait}
+     */
+    public Permit acquire(String sessionId, int cost) throws InterruptedException {
+        long start = System.nanoTime();
+        Waiter waiter;
+        synchronized (this) {
+            Session session = sessions.computeIfAbsent(sessionId, id -> new Session());
+            if (queue.isEmpty() && running < maxConcurrent && session.running < maxConcurrentPerSession) {
+                // Nothing is waiting, so running now takes nobody's turn
+                double finish = Math.max(virtualTime, session.lastFinish) + cost;
+                session.lastFinish = finish;
+                virtualTime = finish;
+                start(session);
+                admittedWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return new Permit(sessionId);
+            }
+            if (session.queued >= maxQueuedPerSession) {
+                throw reject(sessionId, session, Rejection.Reason.SESSION_QUEUE_FULL, start);
+            }
+            if (queue.size() >= maxQueued) {
+                throw reject(sessionId, session, Rejection.Reason.QUEUE_FULL, start);
+            }
+            double finish = Math.max(virtualTime, session.lastFinish) + cost;
+            session.lastFinish = finish;
+            session.queued++;
+            waiter = new Waiter(sessionId, session, finish, seq++, new CompletableFuture<>());
+            queue.add(waiter);
+            // The queue may only hold calls of sessions at their own limit, leaving a global slot free for this one
+            dispatch();
+        }
+
+        try {
+            waiter.admitted().get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            synchronized (this) {
+                if (queue.remove(waiter)) {
+                    waiter.session().queued--;
+                    if (e instanceof InterruptedException interrupted) {
+                        forgetIfIdle(waiter.sessionId(), waiter.session());
+                        throw interrupted;
+                    }
+                    throw reject(waiter.sessionId(), waiter.session(), Rejection.Reason.DEADLINE, start);
+                }
+            }
+            // Admitted while timing out: the slot is ours, so run, but keep the interrupt for the caller to see
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        admittedWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit(sessionId);
+    }
+
+    private void release(String sessionId) {
+        synchronized (this) {
+            Session session = sessions.get(sessionId);
+            session.running--;
+            running--;
+            dispatch();
+            forgetIfIdle(sessionId, session);
+        }
+    }
+
+    /** Hands free slots to the waiters with the smallest finish tags whose session is below its limit. */
+    private void dispatch() {
+        Iterator<Waiter> waiting = queue.iterator();
+        while (running < maxConcurrent && waiting.hasNext()) {
+            Waiter next = waiting.next();
+            Session session = next.session();
+            if (session.running < maxConcurrentPerSession) {
+                waiting.remove();
+                session.queued--;
+                virtualTime = Math.max(virtualTime, next.finish());
+                start(session);
+                next.admitted().complete(null);
+            }
+        }
+    }
+
+    private void start(Session session) {
+        session.running++;
+        running++;
+    }
+
+    private Rejection reject(String sessionId, Session session, Rejection.Reason reason, long start) {
+        rejectedWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        rejections.get(reason).increment();
+        forgetIfIdle(sessionId, session);
+        return new Rejection(reason, maxWait);
+    }
+
+    /** Drops an idle session unless it is still ahead of the virtual clock, which would forgive its overuse. */
+    private void forgetIfIdle(String sessionId, Session session) {
+        if (session.running == 0 && session.queued == 0 && session.lastFinish <= virtualTime) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    private synchronized int snapshot(boolean runningCalls) {
+        return runningCalls ? running : queue.size();
+    }
+
+    /** Returned by {@link #acquire}; closing it frees the slot for the next waiter. */
+    public final class Permit implements AutoCloseable {
+        private final String sessionId;
+        private boolean released;
+
+        private Permit(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(sessionId);
+            }
+        }
+    }
+
+    /** A call that was not admitted; {@link #retryAfter()} is a hint for the client. */
+    public static final class Rejection extends RuntimeException {
+
+        public enum Reason {
+            SESSION_QUEUE_FULL("session_queue_full", "Too many tool calls queued for this session"),
+            QUEUE_FULL("queue_full", "Server is busy"),
+            DEADLINE("deadline", "Tool call waited too long for a free slot");
+
+            private final String tag;
+            private final String message;
+
+            Reason(String tag, String message) {
+                this.tag = tag;
+                this.message = message;
+            }
+
+            String tag() {
+                return tag;
+            }
+        }
+
+        private final Reason reason;
+        private final Duration retryAfter;
+
+        Rejection(Reason reason, Duration retryAfter) {
+            super(reason.message, null, false, false);
+            this.reason = reason;
+            this.retryAfter = retryAfter;
+        }
+
+        public Reason reason() {
+            return reason;
+        }
+
+        public Duration retryAfter() {
+            return retryAfter;
+        }
+    }
+
+    private static final class Session {
+        int running;
+        int queued;
+        double lastFinish;
+    }
+
+    private record Waiter(String sessionId, Session session, double finish, long seq, CompletableFuture<Void> admitted) {}
+}
@@ -0,0 +1,268 @@
+package com.gtrefs.liveperson.mcp.poc.admission;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gtrefs.liveperson.mcp.poc.transport.SessionIds;
+import com.gtrefs.liveperson.mcp.poc.transport.SessionTrackingSseTransportProvider;
+import com.gtrefs.liveperson.mcp.poc.transport.StatelessStreamableHttpTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.modelcontextprotocol.spec.McpSchema;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Puts {@code tools/call} messages through a {@link FairScheduler} before the MCP transport sees them. Both transports
+ * answer a message POST only once the tool has finished, so holding the POST here holds the tool call, in both SYNC
+ * and ASYNC mode. Other messages (initialize, list, ping) pass straight through. SSE calls are queued per session;
+ * stateless calls per {@code Mcp-Session-Id} if its signature checks out, and per client address otherwise, so a
+ * client cannot spread its calls over ids it made up.
+ * <p>
+ * A rejected call fails fast instead of waiting for a result that would arrive too late. Its POST is answered with
+ * {@code 429 Too Many Requests}, {@code Retry-After} and a JSON-RPC error. On SSE the error also goes to the session's
+ * stream, where MCP clients wait for it.
+ * <p>
+ * Message bodies are buffered to be read here, up to {@code lp.admission.max-body-bytes}; larger ones get {@code 413}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "lp.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ToolAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ToolAdmissionFilter.class);
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** JSON-RPC implementation-defined server error used for refused calls. */
+    private static final int SERVER_BUSY = -32000;
+
+    private final FairScheduler scheduler;
+    private final Map<String, Integer> costs;
+    private final String messageEndpoint;
+    private final String streamableEndpoint;
+    private final int maxBodyBytes;
+    private final ObjectMapper objectMapper;
+    private final SessionTrackingSseTransportProvider transportProvider;
+    private final SessionIds sessionIds;
+
+    public ToolAdmissionFilter(MeterRegistry meterRegistry,
+                               ObjectMapper objectMapper,
+                               SessionTrackingSseTransportProvider transportProvider,
+                               SessionIds sessionIds,
+                               Environment environment,
+                               @Value("${spring.ai.mcp.server.sse-message-endpoint:/mcp/message}") String messageEndpoint,
+                               @Value("${lp.streamable-http.endpoint:/mcp}") String streamableEndpoint,
+                               @Value("${lp.admission.max-concurrent:64}") int maxConcurrent,
+                               @Value("${lp.admission.max-concurrent-per-session:4}") int maxConcurrentPerSession,
+                               @Value("${lp.admission.max-queued:256}") int maxQueued,
+                               @Value("${lp.admission.max-queued-per-session:16}") int maxQueuedPerSession,
+                               @Value("${lp.admission.max-wait-ms:2000}") long maxWaitMs,
+                               @Value("${lp.admission.max-body-bytes:1048576}") int maxBodyBytes) {
+        this.scheduler = new FairScheduler(meterRegistry, maxConcurrent, maxConcurrentPerSession, maxQueued,
+                maxQueuedPerSession, Duration.ofMillis(maxWaitMs));
+        this.costs = Binder.get(environment)
+                .bind("lp.admission.costs", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+        this.messageEndpoint = messageEndpoint;
+        this.streamableEndpoint = streamableEndpoint;
+        this.maxBodyBytes = maxBodyBytes;
+        this.objectMapper = objectMapper;
+        this.transportProvider = transportProvider;
+        this.sessionIds = sessionIds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !(messageEndpoint.equals(request.getRequestURI()) || streamableEndpoint.equals(request.getRequestURI()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean sse = messageEndpoint.equals(request.getRequestURI());
+        String sessionId = sse ? request.getParameter("sessionId") : statelessClient(request);
+        if (request.getContentLengthLong() > maxBodyBytes) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        // Without a Content-Length the body is read up to one byte past the limit to tell whether it is too large
+        byte[] body = request.getInputStream().readNBytes(maxBodyBytes + 1);
+        if (body.length > maxBodyBytes) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+        HttpServletRequest replay = new BufferedRequest(request, body);
+        Call call = sessionId != null ? Call.parse(body) : null;
+        if (call == null || !"tools/call".equals(call.method())) {
+            chain.doFilter(replay, response);
+            return;
+        }
+
+        FairScheduler.Permit permit;
+        try {
+            permit = scheduler.acquire(sessionId, costs.getOrDefault(call.tool(), 1));
+        } catch (FairScheduler.Rejection e) {
+            logger.debug("Rejected {} for session {}: {}", call.tool(), sessionId, e.getMessage());
+            reject(response, sse ? sessionId : null, call, e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        try (permit) {
+            chain.doFilter(replay, response);
+        }
+    }
+
+    /**
+     * Stateless clients have no server session; the id they got from {@code initialize} stands in for one. The address
+     * is the client's own only if {@code server.forward-headers-strategy} lets the balancer's forwarded headers through.
+     */
+    private String statelessClient(HttpServletRequest request) {
+        String sessionId = request.getHeader(StatelessStreamableHttpTransport.SESSION_ID_HEADER);
+        return sessionId != null && sessionIds.verify(sessionId) ? sessionId : request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, String sseSessionId, Call call, FairScheduler.Rejection rejection)
+            throws IOException {
+        McpSchema.JSONRPCResponse error = new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, call.id(), null,
+                new McpSchema.JSONRPCResponse.JSONRPCError(SERVER_BUSY, rejection.getMessage(), null));
+        if (sseSessionId != null) {
+            transportProvider.send(sseSessionId, error);
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                Long.toString(Math.max(1, rejection.retryAfter().toSeconds())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    /** The parts of a JSON-RPC message needed for admission, read without building a tree. */
+    record Call(Object id, String method, String tool) {
+
+        static Call parse(byte[] body) {
+            try (JsonParser parser = JSON.createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                Object id = null;
+                String method = null;
+                String tool = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("params".equals(field) && value == JsonToken.START_OBJECT) {
+                        tool = toolName(parser);
+                        continue;
+                    }
+                    if ("id".equals(field)) {
+                        id = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : parser.getValueAsString();
+                    } else if ("method".equals(field)) {
+                        method = parser.getValueAsString();
+                    }
+                    parser.skipChildren();
+                }
+                return new Call(id, method, tool);
+            } catch (IOException e) {
+                // Let the transport report the malformed message
+                return null;
+            }
+        }
+
+        private static String toolName(JsonParser parser) throws IOException {
+            String tool = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("name".equals(field)) {
+                    tool = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return tool;
+        }
+    }
+
+    /** Serves the already consumed body again to the transport. */
+    private static final class BufferedRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        BufferedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // Everything is already buffered, so the data is available at once and then complete
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
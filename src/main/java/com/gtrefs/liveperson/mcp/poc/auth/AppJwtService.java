@@ -2,7 +2,21 @@ package com.gtrefs.liveperson.mcp.poc.auth;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.gtrefs.liveperson.mcp.poc.http.Backoff;
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.Upstream;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
@@ -10,53 +24,239 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Keeps a single App JWT warm for all callers.
+ * <p>
+ * Only one Sentinel request is ever in flight (single-flight). Once a token is cached, a background task renews it
+ * {@code renew-skew-seconds} before expiry; while that renewal runs, callers keep receiving the still-valid token.
+ * Callers only wait when there is no valid token at all. Failed renewals back off exponentially, and Sentinel is asked
+ * at most once per {@code refresh-backoff-min-ms} even when it issues tokens that expire sooner; in between, callers
+ * without a valid token fail fast.
+ * <p>
+ * One instance per account: the default one is this bean, further ones are created by {@code Accounts}. Renewal timers
+ * share a single scheduler thread and the Sentinel requests run on virtual threads, so an idle account costs no thread.
+ * <p>
+ * Created lazily so it stays off the startup path; {@link AuthWarmup} fetches the first token once the server is up.
+ */
 @Service
+@Lazy
 public class AppJwtService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AppJwtService.class);
+
     private final RestClient restClient;
+    private final UpstreamMetrics metrics;
+    private final UpstreamRetry retry;
+    private final TokenStore tokenStore;
+    private final String storeKey;
     private final String accountId;
-    private final String sentinelDomain;
+    private final String sentinelOrigin;
     private final String clientId;
     private final String clientSecret;
     private final int renewSkewSeconds;
+    private final Backoff backoff;
 
     private final AtomicReference<Token> cached = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Token>> inFlight = new AtomicReference<>();
+    // The token whose renewal window was last counted in staleServes
+    private final AtomicReference<Token> staleCounted = new AtomicReference<>();
+    // Only fires timers; the refresh itself runs on a virtual thread, so one account's slow Sentinel delays no other
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("app-jwt-refresh").daemon().factory());
+
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Counter refreshSuccess;
+    private final Counter refreshFailure;
+    private final Counter waits;
+    private final Counter staleServes;
+
+    private volatile ScheduledFuture<?> nextRefresh;
+    private volatile int consecutiveFailures;
+    // No Sentinel request starts before this, after a failure and after a success alike
+    private volatile Instant backoffUntil = Instant.MIN;
+    private volatile RuntimeException lastFailure;
+    private volatile boolean closed;
 
-    public AppJwtService(RestClient.Builder restClientBuilder,
+    public AppJwtService(LivePersonHttpClients httpClients,
+                         UpstreamMetrics metrics,
+                         UpstreamRetry retry,
+                         TokenStore tokenStore,
+                         MeterRegistry meterRegistry,
                          @Value("${lp.account-id}") String accountId,
                          @Value("${lp.domains.sentinel}") String sentinelDomain,
                          @Value("${lp.auth.client-id}") String clientId,
                          @Value("${lp.auth.client-secret}") String clientSecret,
-                         @Value("${lp.auth.renew-skew-seconds:300}") int renewSkewSeconds) {
+                         @Value("${lp.auth.renew-skew-seconds:300}") int renewSkewSeconds,
+                         @Value("${lp.auth.refresh-backoff-min-ms:1000}") long backoffMinMs,
+                         @Value("${lp.auth.refresh-backoff-max-ms:60000}") long backoffMaxMs) {
 
-        this.restClient = restClientBuilder.build();
+        this.restClient = httpClients.restClient(Upstream.SENTINEL);
+        this.metrics = metrics;
+        this.retry = retry;
+        this.tokenStore = tokenStore;
+        this.storeKey = "app:" + accountId + ":" + clientId;
         this.accountId = accountId;
-        this.sentinelDomain = sentinelDomain;
+        this.sentinelOrigin = httpClients.origin(Upstream.SENTINEL, sentinelDomain);
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.renewSkewSeconds = renewSkewSeconds;
+        this.backoff = new Backoff(Duration.ofMillis(backoffMinMs), Duration.ofMillis(backoffMaxMs));
+
+        this.meterRegistry = meterRegistry;
+        this.refreshSuccess = own(Counter.builder("lp.app.jwt.refreshes").tag("outcome", "success").tag("account", accountId)
+                .description("Sentinel token requests").register(meterRegistry));
+        this.refreshFailure = own(Counter.builder("lp.app.jwt.refreshes").tag("outcome", "failure").tag("account", accountId)
+                .description("Sentinel token requests").register(meterRegistry));
+        this.waits = own(Counter.builder("lp.app.jwt.waits").tag("account", accountId)
+                .description("Callers that had to wait for a token request").register(meterRegistry));
+        this.staleServes = own(Counter.builder("lp.app.jwt.stale.serves").tag("account", accountId)
+                .description("Tokens still served inside their renewal window, counted once per token").register(meterRegistry));
+        own(Gauge.builder("lp.app.jwt.ttl.seconds", cached, ref -> {
+                    Token token = ref.get();
+                    return token == null ? 0 : Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toSeconds());
+                })
+                .tag("account", accountId)
+                .description("Remaining lifetime of the cached App JWT").register(meterRegistry));
+
+        TokenStore.StoredToken stored = tokenStore.load().get(storeKey);
+        if (stored != null) {
+            Token warm = token(stored.value(), stored.expiresAt());
+            cached.set(warm);
+            scheduleRefresh(Duration.between(Instant.now(), warm.refreshAt()));
+            logger.info("Restored App JWT from the token store, valid until {}", warm.expiresAt());
+        }
     }
 
     /** Returns the Authorization header value (optionally "Bearer ...") synchronously. */
     public String getAppJwt() {
+        Token usable = usableToken();
+        if (usable != null) {
+            return usable.value();
+        }
+        try {
+            return awaitToken().join().value();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /** Returns the Authorization header value without blocking the caller while a token request is pending. */
+    public CompletableFuture<String> getAppJwtAsync() {
+        Token usable = usableToken();
+        if (usable != null) {
+            return CompletableFuture.completedFuture(usable.value());
+        }
+        return awaitToken().thenApply(Token::value);
+    }
+
+    /** Returns the cached token while it is still valid, triggering a background renewal inside the skew window. */
+    private Token usableToken() {
         Token current = cached.get();
         Instant now = Instant.now();
 
-        if (current != null && current.expiresAt().minusSeconds(renewSkewSeconds).isAfter(now)) {
-            return current.value();
+        if (current != null && current.refreshAt().isAfter(now) && current.expiresAt().isAfter(now)) {
+            return current;
+        }
+
+        if (current != null && current.expiresAt().isAfter(now)) {
+            // Inside the renewal window: keep serving the valid token and let the refresh run in the background
+            Token counted = staleCounted.get();
+            if (counted != current && staleCounted.compareAndSet(counted, current)) {
+                staleServes.increment();
+            }
+            if (backoffUntil.isBefore(now)) {
+                refresh();
+            }
+            return current;
+        }
+        return null;
+    }
+
+    private CompletableFuture<Token> awaitToken() {
+        Instant notBefore = backoffUntil;
+        if (notBefore.isAfter(Instant.now()) && inFlight.get() == null) {
+            RuntimeException failure = lastFailure;
+            return CompletableFuture.failedFuture(failure != null ? failure : new UpstreamUnavailableException(
+                    "The App JWT of account " + accountId + " expired before it could be renewed; requesting a new one"
+                            + " no sooner than " + notBefore));
+        }
+        waits.increment();
+        return refresh();
+    }
+
+    /** Starts a token request unless one is already in flight, and returns the pending result. */
+    private CompletableFuture<Token> refresh() {
+        while (true) {
+            CompletableFuture<Token> pending = inFlight.get();
+            if (pending != null) {
+                return pending;
+            }
+            CompletableFuture<Token> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                Thread.ofVirtual().name("app-jwt-refresh-" + accountId).start(() -> runRefresh(mine));
+                return mine;
+            }
         }
+    }
+
+    private void runRefresh(CompletableFuture<Token> result) {
+        try {
+            Token fresh = requestNewToken();
+            cached.set(fresh);
+            tokenStore.put(storeKey, new TokenStore.StoredToken(fresh.value(), fresh.expiresAt()));
+            consecutiveFailures = 0;
+            lastFailure = null;
+            backoffUntil = Instant.now().plus(backoff.min());
+            refreshSuccess.increment();
+            scheduleRefresh(Duration.between(Instant.now(), fresh.refreshAt()));
+            // Cleared first, so a caller finding the result complete also finds the backoff set above
+            inFlight.compareAndSet(result, null);
+            result.complete(fresh);
+        } catch (RuntimeException e) {
+            int failures = ++consecutiveFailures;
+            Duration delay = backoff.delay(failures);
+            backoffUntil = Instant.now().plus(delay);
+            lastFailure = e;
+            refreshFailure.increment();
+            logger.warn("App JWT refresh failed ({} consecutive), retrying in {} ms: {}",
+                    failures, delay.toMillis(), e.getMessage());
+            scheduleRefresh(delay);
+            inFlight.compareAndSet(result, null);
+            result.completeExceptionally(e);
+        } finally {
+            inFlight.compareAndSet(result, null);
+        }
+    }
 
-        // Fetch a new token and cache it
-        Token fresh = requestNewToken();
-        cached.set(fresh);
-        return fresh.value();
+    private void scheduleRefresh(Duration delay) {
+        ScheduledFuture<?> previous = nextRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (closed) {
+            return;
+        }
+        nextRefresh = SCHEDULER.schedule(this::refresh, Math.max(delay.toMillis(), 0), TimeUnit.MILLISECONDS);
     }
 
     private Token requestNewToken() throws RestClientException {
-        String url = "https://" + sentinelDomain +
+        String url = sentinelOrigin +
                 "/sentinel/api/account/" + accountId +
                 "/app/token?v=1.0&grant_type=client_credentials";
 
@@ -64,17 +264,58 @@ public class AppJwtService {
         form.add("client_id", clientId);
         form.add("client_secret", clientSecret);
 
-        TokenResponse resp = restClient.post()
-                .uri(url)
-                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .body(form)
-                .retrieve()
-                .body(TokenResponse.class);
+        TokenResponse resp = retry.call(Upstream.SENTINEL, "appToken", () -> metrics.time(Upstream.SENTINEL, "appToken",
+                () -> restClient.post()
+                        .uri(url)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .body(form)
+                        .retrieve()
+                        .toEntity(TokenResponse.class))).getBody();
+
+        if (resp.expiresIn() <= renewSkewSeconds) {
+            logger.warn("Sentinel issued an App JWT valid for only {} s (renew skew {} s); renewing no sooner than {} ms",
+                    resp.expiresIn(), renewSkewSeconds, backoff.min().toMillis());
+        }
+        return token(resp.accessToken(), Instant.now().plusSeconds(resp.expiresIn()));
+    }
+
+    private Token token(String value, Instant expiresAt) {
+        Instant now = Instant.now();
+        Instant refreshAt = expiresAt.minusSeconds(renewSkewSeconds);
+        if (!refreshAt.isAfter(now)) {
+            // Remaining lifetime shorter than the skew: renew half-way through instead of immediately
+            refreshAt = now.plus(Duration.between(now, expiresAt).dividedBy(2));
+        }
+        // A token that is (nearly) expired on arrival must not turn the renewal timer into a loop against Sentinel
+        Instant earliest = now.plus(backoff.min());
+        if (refreshAt.isBefore(earliest)) {
+            refreshAt = earliest;
+        }
+        return new Token(value, expiresAt, refreshAt);
+    }
+
+    /** Stops renewing; the cached token stays usable until it expires. */
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        ScheduledFuture<?> pending = nextRefresh;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    /** Stops renewing and removes the meters this instance registered, for an account that is released. */
+    public void close() {
+        shutdown();
+        meters.forEach(meterRegistry::remove);
+    }
 
-        return new Token(resp.accessToken(), Instant.now().plusSeconds(resp.expiresIn()));
+    private <M extends Meter> M own(M meter) {
+        meters.add(meter);
+        return meter;
     }
 
-    record Token(String value, Instant expiresAt) {}
+    record Token(String value, Instant expiresAt, Instant refreshAt) {}
 
     @JsonIgnoreProperties(ignoreUnknown = true)
     sealed interface AuthResponse permits TokenResponse {}
@@ -0,0 +1,48 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Creates the lazily initialized token services and requests the App JWT right after the server reports ready, on a
+ * background thread. Startup does not wait for Sentinel, and the first tool call usually finds a token already cached.
+ */
+@Component
+@ConditionalOnProperty(prefix = "lp.startup", name = "warm-up", havingValue = "true", matchIfMissing = true)
+public class AuthWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthWarmup.class);
+
+    private final ObjectProvider<AppJwtService> appJwtService;
+    private final ObjectProvider<ConsumerJwsService> consumerJwsService;
+
+    public AuthWarmup(ObjectProvider<AppJwtService> appJwtService,
+                      ObjectProvider<ConsumerJwsService> consumerJwsService) {
+        this.appJwtService = appJwtService;
+        this.consumerJwsService = consumerJwsService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp() {
+        Thread.ofVirtual().name("auth-warmup").start(() -> {
+            long start = System.nanoTime();
+            consumerJwsService.getObject();
+            appJwtService.getObject().getAppJwtAsync().whenComplete((token, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    // Not fatal: the refresh keeps retrying in the background and callers request the token again
+                    logger.warn("App JWT warm-up failed: {}", cause.getMessage());
+                } else {
+                    logger.info("Token services ready in {} ms", (System.nanoTime() - start) / 1_000_000);
+                }
+            });
+        });
+    }
+}
@@ -1,70 +1,219 @@
 package com.gtrefs.liveperson.mcp.poc.auth;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.Upstream;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.search.Search;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
+@Lazy
 public class ConsumerJwsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerJwsService.class);
+
+    private static final ObjectReader CLAIMS_READER = new ObjectMapper().readerFor(ClaimsPayload.class);
+
     private final RestClient restClient;
+    private final UpstreamMetrics metrics;
+    private final UpstreamRetry retry;
     private final String accountId;
-    private final String idpDomain;
+    private final String idpOrigin;
     private final AppJwtService appJwtService;
-    private final ConcurrentHashMap<String, ConsumerIdentity> cache = new ConcurrentHashMap<>();
+    private final TokenStore tokenStore;
+    private final String storePrefix;
+    private final Duration ttl;
+    // Shared by all accounts and never shut down: a released account's cache may still be loading for calls in flight
+    private static final ExecutorService LOADER = Executors.newVirtualThreadPerTaskExecutor();
+    private final AsyncLoadingCache<String, ConsumerIdentity> cache;
+    private final MeterRegistry meterRegistry;
+    private final Collection<Meter> meters;
 
-    public ConsumerJwsService(RestClient.Builder builder,
+    public ConsumerJwsService(LivePersonHttpClients httpClients,
+                              UpstreamMetrics metrics,
+                              UpstreamRetry retry,
+                              MeterRegistry meterRegistry,
                               @Value("${lp.account-id}") String accountId,
                               @Value("${lp.domains.idp}") String idpDomain,
-                              AppJwtService appJwtService) {
-        this.restClient = builder.build();
+                              @Value("${lp.auth.consumer-cache.max-size:10000}") long maxSize,
+                              @Value("${lp.auth.consumer-cache.ttl-seconds:3600}") long ttlSeconds,
+                              @Value("${lp.auth.consumer-cache.expiry-skew-seconds:60}") long expirySkewSeconds,
+                              AppJwtService appJwtService,
+                              TokenStore tokenStore) {
+        this.restClient = httpClients.restClient(Upstream.IDP);
+        this.metrics = metrics;
+        this.retry = retry;
         this.accountId = accountId;
-        this.idpDomain = idpDomain;
+        this.idpOrigin = httpClients.origin(Upstream.IDP, idpDomain);
         this.appJwtService = appJwtService;
+        this.tokenStore = tokenStore;
+        this.storePrefix = "consumer:" + accountId + ":";
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new IdentityExpiry(ttl, Duration.ofSeconds(expirySkewSeconds)))
+                .executor(LOADER)
+                .removalListener((String extConsumerId, ConsumerIdentity identity, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        tokenStore.remove(storePrefix + extConsumerId);
+                    }
+                })
+                .recordStats()
+                .buildAsync(this::requestConsumerJws);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "lp.consumer.jws", "account", accountId);
+        // Taken once: Accounts releases an account before re-creating it, so these are the meters this instance bound
+        this.meterRegistry = meterRegistry;
+        this.meters = List.copyOf(Search.in(meterRegistry).tags("cache", "lp.consumer.jws", "account", accountId).meters());
+        restore();
+    }
+
+    /** Seeds the cache with identities persisted by a previous run; expired ones were already filtered out. */
+    private void restore() {
+        int restored = 0;
+        for (Map.Entry<String, TokenStore.StoredToken> entry : tokenStore.load().entrySet()) {
+            if (entry.getKey().startsWith(storePrefix)) {
+                TokenStore.StoredToken stored = entry.getValue();
+                JwtClaims claims = extractClaims(stored.value());
+                Instant expiresAt = claims.expiresAt() != null ? claims.expiresAt() : stored.expiresAt();
+                cache.put(entry.getKey().substring(storePrefix.length()), CompletableFuture.completedFuture(
+                        new ConsumerIdentity(stored.value(), claims.lpConsumerId(), expiresAt)));
+                restored++;
+            }
+        }
+        if (restored > 0) {
+            logger.info("Restored {} consumer identities from the token store", restored);
+        }
     }
 
-    /** Returns a cached Consumer JWS for the given external consumer id, creating it if needed. */
+    /**
+     * Returns a cached Consumer JWS for the given external consumer id, creating it if needed.
+     * Concurrent callers for the same id share a single IdP request, which runs outside the cache's locks.
+     */
     public ConsumerIdentity getConsumerJws(String extConsumerId) {
-        return cache.computeIfAbsent(extConsumerId, id -> {
-            String url = "https://" + idpDomain + "/api/account/" + accountId + "/consumer?v=1.0";
-            String appJwt = appJwtService.getAppJwt();
-            TokenResponse response = restClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .header("Authorization", appJwt)
-                    .body(Map.of("ext_consumer_id", extConsumerId))
-                    .retrieve()
-                    .body(TokenResponse.class);
-            String token = response.token();
-            return new ConsumerIdentity(token, extractLpConsumerId(token));
-        });
+        try {
+            return cache.get(extConsumerId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /** Removes the cache meters this instance registered, for an account that is released. */
+    public void close() {
+        meters.forEach(meterRegistry::remove);
+    }
+
+    /** Non-blocking variant of {@link #getConsumerJws(String)}. */
+    public CompletableFuture<ConsumerIdentity> getConsumerJwsAsync(String extConsumerId) {
+        return cache.get(extConsumerId);
+    }
+
+    private ConsumerIdentity requestConsumerJws(String extConsumerId) {
+        String url = idpOrigin + "/api/account/" + accountId + "/consumer?v=1.0";
+        String appJwt = appJwtService.getAppJwt();
+        TokenResponse response = retry.call(Upstream.IDP, "consumerToken", () -> metrics.time(Upstream.IDP, "consumerToken",
+                () -> restClient.post()
+                        .uri(url)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Authorization", appJwt)
+                        .body(Map.of("ext_consumer_id", extConsumerId))
+                        .retrieve()
+                        .toEntity(TokenResponse.class))).getBody();
+        String token = response.token();
+        JwtClaims claims = extractClaims(token);
+        ConsumerIdentity identity = new ConsumerIdentity(token, claims.lpConsumerId(), claims.expiresAt());
+        Instant expiresAt = claims.expiresAt() != null ? claims.expiresAt() : Instant.now().plus(ttl);
+        tokenStore.put(storePrefix + extConsumerId, new TokenStore.StoredToken(token, expiresAt));
+        return identity;
     }
 
-    private static String extractLpConsumerId(String jwt) {
-        final ObjectReader reader = new ObjectMapper().reader();
+    /** Reads {@code lp_consumer_id} and {@code exp} from the payload segment, without verifying the signature. */
+    static JwtClaims extractClaims(String jwt) {
         // jwt = header.payload.signature
-        String[] parts = jwt.split("\\.");
-        if (parts.length < 2) return null;
-        byte[] json = Base64.getUrlDecoder().decode(parts[1]);
+        int start = jwt.indexOf('.') + 1;
+        int end = jwt.indexOf('.', start);
+        if (start == 0 || end < 0) return new JwtClaims(null, null);
+        // Base64url text is ASCII, so a Latin-1 copy is exact and avoids the charset encoder
+        byte[] ascii = jwt.getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer json = Base64.getUrlDecoder().decode(ByteBuffer.wrap(ascii, start, end - start));
         try {
-            JsonNode claims = reader.readTree(new String(json, StandardCharsets.UTF_8));
-            JsonNode lpConsumerId = claims.get("lp_consumer_id");
-            return lpConsumerId != null && !lpConsumerId.isNull() ? lpConsumerId.asText() : null;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            ClaimsPayload claims = CLAIMS_READER.readValue(json.array(), json.arrayOffset() + json.position(), json.remaining());
+            return new JwtClaims(claims.lpConsumerId(), claims.exp() != null ? Instant.ofEpochSecond(claims.exp()) : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Expires an identity after the configured TTL or shortly before its JWS {@code exp}, whichever comes first. */
+    private record IdentityExpiry(Duration ttl, Duration skew) implements Expiry<String, ConsumerIdentity> {
+        @Override
+        public long expireAfterCreate(String key, ConsumerIdentity value, long currentTime) {
+            if (value.expiresAt() == null) {
+                return ttl.toNanos();
+            }
+            Duration untilExpiry = Duration.between(Instant.now(), value.expiresAt().minus(skew));
+            return Math.max(0, Math.min(ttl.toNanos(), untilExpiry.toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, ConsumerIdentity value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, ConsumerIdentity value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    public record ConsumerIdentity(String token, String lpConsumerId, Instant expiresAt) {
+        @Override
+        public String toString() {
+            // Never let the bearer token reach a log line
+            return "ConsumerIdentity[lpConsumerId=" + lpConsumerId + ", expiresAt=" + expiresAt + "]";
         }
     }
 
-    public record ConsumerIdentity(String token, String lpConsumerId) {
+    record JwtClaims(String lpConsumerId, Instant expiresAt) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record ClaimsPayload(@JsonProperty("lp_consumer_id") String lpConsumerId, Long exp) {
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -0,0 +1,324 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps tokens in an append-only, AES-GCM encrypted log file.
+ * <p>
+ * Every {@link #put} or {@link #remove} appends one encrypted record from a background writer, so callers never wait
+ * on disk. On startup the log is replayed, expired tokens are dropped and the file is rewritten with only the live
+ * ones; the same compaction runs whenever the log has grown to {@code compact-after} records and twice the live set.
+ * A log that cannot be decrypted (key rotated, file damaged) is read up to the first bad record and the rest is
+ * discarded: the store is a cache, so the worst case is a cold start.
+ */
+@Component
+@ConditionalOnProperty(prefix = "lp.auth.token-store", name = "type", havingValue = "file")
+public class FileTokenStore implements TokenStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileTokenStore.class);
+
+    private static final byte[] MAGIC = {'L', 'P', 'T', 'S', 1};
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final Entry STOP = new Entry(REMOVE, "", null);
+
+    private final Path path;
+    private final SecretKey key;
+    private final int compactAfter;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, StoredToken> live = new ConcurrentHashMap<>();
+    private final Map<String, StoredToken> restored;
+    private final BlockingQueue<Entry> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean writing = true;
+
+    // Owned by the writer thread once it has started
+    private FileChannel channel;
+    private int appended;
+
+    public FileTokenStore(MeterRegistry meterRegistry,
+                          @Value("${lp.auth.token-store.path:./data/tokens.bin}") String path,
+                          @Value("${lp.auth.token-store.key:}") String base64Key,
+                          @Value("${lp.auth.token-store.compact-after:10000}") int compactAfter) {
+        this.path = Path.of(path);
+        this.key = decodeKey(base64Key);
+        this.compactAfter = compactAfter;
+
+        Instant now = Instant.now();
+        read().forEach((k, token) -> {
+            if (token.expiresAt().isAfter(now)) {
+                live.put(k, token);
+            }
+        });
+        this.restored = Map.copyOf(live);
+        try {
+            compact();
+            logger.info("Token store {}: restored {} unexpired tokens", this.path, restored.size());
+        } catch (IOException | RuntimeException e) {
+            // Persistence is best effort; the restored tokens are still served, nothing new is written
+            writing = false;
+            live.clear();
+            logger.warn("Token store {} cannot be written, tokens will not be persisted: {}", this.path, e.toString());
+        }
+
+        Gauge.builder("lp.token.store.entries", live, Map::size)
+                .description("Tokens held in the persistent token store").register(meterRegistry);
+        this.writer = writing ? Thread.ofPlatform().name("token-store-writer").daemon().start(this::writeLoop) : null;
+    }
+
+    @Override
+    public Map<String, StoredToken> load() {
+        Instant now = Instant.now();
+        return restored.entrySet().stream()
+                .filter(e -> e.getValue().expiresAt().isAfter(now))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    @Override
+    public void put(String key, StoredToken token) {
+        if (writing) {
+            live.put(key, token);
+            pending.add(new Entry(PUT, key, token));
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        if (writing && live.remove(key) != null) {
+            pending.add(new Entry(REMOVE, key, null));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (writer != null) {
+            pending.add(STOP);
+            writer.join(5_000);
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                boolean stop = batch.removeIf(entry -> entry == STOP);
+                append(batch);
+                batch.clear();
+                if (stop) {
+                    channel.close();
+                    return;
+                }
+                if (appended >= compactAfter && appended >= 2 * live.size()) {
+                    compact();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            // Persistence is best effort; the in-memory caches keep working without it
+            writing = false;
+            pending.clear();
+            live.clear();
+            logger.warn("Token store {} stopped writing: {}", path, e.toString());
+        }
+    }
+
+    private void append(List<Entry> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Entry entry : batch) {
+            writeRecord(out, entry);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        appended += batch.size();
+    }
+
+    /** Rewrites the log with only the live, unexpired tokens and reopens it for appending. */
+    private void compact() throws IOException {
+        Instant now = Instant.now();
+        live.entrySet().removeIf(e -> !e.getValue().expiresAt().isAfter(now));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MAGIC);
+        for (Map.Entry<String, StoredToken> e : live.entrySet()) {
+            writeRecord(out, new Entry(PUT, e.getKey(), e.getValue()));
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            restrictToOwner(temp);
+            Files.write(temp, out.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        appended = 0;
+    }
+
+    private Map<String, StoredToken> read() {
+        Map<String, StoredToken> tokens = new HashMap<>();
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                logger.warn("Token store {} has an unknown format, starting cold", path);
+                return tokens;
+            }
+            while (true) {
+                int length = in.readInt();
+                if (length <= IV_BYTES || length > MAX_RECORD_BYTES) {
+                    throw new IOException("corrupt record length " + length);
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                Entry entry = decrypt(record);
+                if (entry.op() == PUT) {
+                    tokens.put(entry.key(), entry.token());
+                } else {
+                    tokens.remove(entry.key());
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return tokens;
+        } catch (EOFException e) {
+            // End of log, possibly a record cut short by a crash
+            return tokens;
+        } catch (AEADBadTagException e) {
+            logger.warn("Token store {} cannot be decrypted with the configured key, keeping {} tokens read so far",
+                    path, tokens.size());
+            return tokens;
+        } catch (IOException | GeneralSecurityException e) {
+            logger.warn("Token store {} is damaged, keeping {} tokens read so far: {}", path, tokens.size(), e.toString());
+            return tokens;
+        }
+    }
+
+    private void writeRecord(ByteArrayOutputStream out, Entry entry) {
+        try {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(plain);
+            data.writeByte(entry.op());
+            data.writeUTF(entry.key());
+            if (entry.op() == PUT) {
+                data.writeUTF(entry.token().value());
+                data.writeLong(entry.token().expiresAt().toEpochMilli());
+            }
+
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(MAGIC);
+            byte[] sealed = cipher.doFinal(plain.toByteArray());
+
+            DataOutputStream record = new DataOutputStream(out);
+            record.writeInt(IV_BYTES + sealed.length);
+            record.write(iv);
+            record.write(sealed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt token store record", e);
+        }
+    }
+
+    private Entry decrypt(byte[] record) throws GeneralSecurityException, IOException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, record, 0, IV_BYTES));
+        cipher.updateAAD(MAGIC);
+        byte[] plain = cipher.doFinal(record, IV_BYTES, record.length - IV_BYTES);
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(plain));
+        byte op = data.readByte();
+        String key = data.readUTF();
+        if (op != PUT) {
+            return new Entry(op, key, null);
+        }
+        String value = data.readUTF();
+        Instant expiresAt = Instant.ofEpochMilli(data.readLong());
+        return new Entry(op, key, new StoredToken(value, expiresAt));
+    }
+
+    private static void restrictToOwner(Path file) throws IOException {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        }
+    }
+
+    private static SecretKey decodeKey(String base64Key) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(base64Key.trim());
+        } catch (IllegalArgumentException e) {
+            bytes = new byte[0];
+        }
+        if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+            throw new IllegalStateException("lp.auth.token-store.key must be a base64-encoded 128, 192 or 256 bit AES key"
+                    + " when lp.auth.token-store.type=file (e.g. openssl rand -base64 32)");
+        }
+        return new SecretKeySpec(bytes, "AES");
+    }
+
+    private record Entry(byte op, String key, StoredToken token) {}
+}
@@ -0,0 +1,28 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Default store: keeps nothing, so every start is a cold start. The token caches already hold the live tokens in
+ * memory; a second copy here would only outlive them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "lp.auth.token-store", name = "type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenStore implements TokenStore {
+
+    @Override
+    public Map<String, StoredToken> load() {
+        return Map.of();
+    }
+
+    @Override
+    public void put(String key, StoredToken token) {
+    }
+
+    @Override
+    public void remove(String key) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Persistence behind the token caches of {@link AppJwtService} and {@link ConsumerJwsService}, so a restarted node can
+ * serve with the tokens issued to its previous incarnation instead of re-requesting all of them at once.
+ * Selected with {@code lp.auth.token-store.type}: {@code memory} (default) or {@code file}.
+ */
+public interface TokenStore {
+
+    /** Tokens saved by a previous run that have not expired yet, by key. */
+    Map<String, StoredToken> load();
+
+    /** Saves or replaces a token; implementations must not block the caller on I/O. */
+    void put(String key, StoredToken token);
+
+    void remove(String key);
+
+    record StoredToken(String value, Instant expiresAt) {
+        @Override
+        public String toString() {
+            return "StoredToken[expiresAt=" + expiresAt + "]";
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff from {@code min}, doubling per attempt up to {@code max}, for upstream retries and token
+ * renewals alike.
+ */
+public record Backoff(Duration min, Duration max) {
+
+    /** Delay before the next try after {@code attempt} (1-based) consecutive failures. */
+    public Duration delay(int attempt) {
+        long base = min.toMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(base, max.toMillis());
+        // Full jitter on the upper half keeps concurrent callers and replicas from retrying in lockstep
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+}
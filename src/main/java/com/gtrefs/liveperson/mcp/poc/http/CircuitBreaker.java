@@ -0,0 +1,121 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker for one upstream domain.
+ * <p>
+ * Opens when at least {@code failure-rate-threshold} percent of the last {@code window-size} calls failed (once
+ * {@code minimum-calls} have been seen), rejects calls for {@code open-duration-ms}, then lets {@code half-open-calls}
+ * trial calls through: all must succeed to close again, any failure re-opens it.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    CircuitBreaker(String name, Settings settings) {
+        this.name = name;
+        this.failureRateThreshold = settings.failureRateThreshold();
+        this.minimumCalls = Math.min(settings.minimumCalls(), settings.windowSize());
+        this.openNanos = settings.openDuration().toNanos();
+        this.halfOpenCalls = settings.halfOpenCalls();
+        this.window = new boolean[settings.windowSize()];
+    }
+
+    /** Claims permission for one call; every successful claim must be followed by exactly one outcome. */
+    synchronized void acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                throw new UpstreamUnavailableException("Circuit breaker for " + name + " is open");
+            }
+            state = State.HALF_OPEN;
+            trialsStarted = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                throw new UpstreamUnavailableException("Circuit breaker for " + name + " is half-open, trial calls in progress");
+            }
+            trialsStarted++;
+        }
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    record Settings(int failureRateThreshold, int windowSize, int minimumCalls, Duration openDuration, int halfOpenCalls) {
+
+        static Settings from(UpstreamProperties properties) {
+            return new Settings(
+                    properties.get("failure-rate-threshold", Integer.class, 50),
+                    properties.get("window-size", Integer.class, 20),
+                    properties.get("minimum-calls", Integer.class, 10),
+                    Duration.ofMillis(properties.get("open-duration-ms", Long.class, 10_000L)),
+                    properties.get("half-open-calls", Integer.class, 3));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of concurrent requests to one upstream.
+ * Blocking callers wait for a slot up to a deadline; async callers are queued and started when a slot frees up,
+ * so they never park a thread.
+ * <p>
+ * When adaptive, the cap follows AIMD between {@code min-limit} and {@code max-concurrency}: a sample that was slow
+ * (above {@code latency-threshold-ms}), throttled (429/503) or timed out multiplies the limit by {@code backoff-ratio};
+ * every other sample adds {@code 1/limit}, i.e. about one slot per limit's worth of good responses. The limit drops at
+ * most once per round trip: bad samples of requests sent before the last decrease still reflect the old limit, so a
+ * burst of them counts once instead of collapsing the limit to its minimum.
+ */
+final class InFlightLimiter {
+
+    private final String upstream;
+    private final int maxConcurrency;
+    private final Adaptive adaptive;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final Queue<Runnable> queued = new ArrayDeque<>();
+    private double limit;
+    private boolean decreased;
+    private long decreasedAt;
+    private int inFlight;
+    private int waiting;
+
+    InFlightLimiter(String upstream, int maxConcurrency, Adaptive adaptive) {
+        this.upstream = upstream;
+        this.maxConcurrency = maxConcurrency;
+        this.adaptive = adaptive;
+        this.limit = maxConcurrency;
+    }
+
+    <T> T call(Duration acquireTimeout, BlockingCall<T> call) throws IOException {
+        acquire(acquireTimeout);
+        try {
+            return call.call();
+        } finally {
+            release();
+        }
+    }
+
+    <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> started;
+            try {
+                started = call.get();
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            started.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        boolean admitted;
+        lock.lock();
+        try {
+            admitted = queued.isEmpty() && inFlight < currentLimit();
+            if (admitted) {
+                inFlight++;
+            } else {
+                queued.add(start);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (admitted) {
+            start.run();
+        }
+        return result;
+    }
+
+    /**
+     * Feeds one completed exchange, sent at {@code startNanos} ({@link System#nanoTime()}), into the adaptive limit;
+     * a no-op when the limit is fixed.
+     */
+    void onSample(long startNanos, long latencyNanos, boolean overloaded) {
+        if (adaptive == null) {
+            return;
+        }
+        List<Runnable> startable;
+        lock.lock();
+        try {
+            if (overloaded || latencyNanos > adaptive.latencyThreshold().toNanos()) {
+                if (!decreased || startNanos - decreasedAt >= 0) {
+                    limit = Math.max(Math.min(adaptive.minLimit(), maxConcurrency), limit * adaptive.backoffRatio());
+                    decreased = true;
+                    decreasedAt = System.nanoTime();
+                }
+                return;
+            }
+            limit = Math.min(maxConcurrency, limit + 1 / limit);
+            startable = admitQueued();
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        startable.forEach(Runnable::run);
+    }
+
+    private void acquire(Duration timeout) {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        throw new UpstreamUnavailableException("No free connection slot for " + upstream + " within "
+                                + timeout.toMillis() + " ms (limit " + currentLimit() + ")");
+                    }
+                    remaining = slotFreed.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UpstreamUnavailableException("Interrupted while waiting for a connection slot for " + upstream);
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        List<Runnable> startable;
+        lock.lock();
+        try {
+            inFlight--;
+            startable = admitQueued();
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+        startable.forEach(Runnable::run);
+    }
+
+    /** Reserves slots for queued async calls; they are started by the caller once the lock is released. */
+    private List<Runnable> admitQueued() {
+        if (queued.isEmpty() || inFlight >= currentLimit()) {
+            return List.of();
+        }
+        List<Runnable> startable = new ArrayList<>();
+        while (!queued.isEmpty() && inFlight < currentLimit()) {
+            startable.add(queued.poll());
+            inFlight++;
+        }
+        return startable;
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queued.size() + waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    record Adaptive(int minLimit, Duration latencyThreshold, double backoffRatio) {
+
+        /** Returns {@code null} when adaptive limiting is switched off. */
+        static Adaptive from(UpstreamProperties properties) {
+            if (!properties.get("enabled", Boolean.class, true)) {
+                return null;
+            }
+            return new Adaptive(
+                    properties.get("min-limit", Integer.class, 4),
+                    Duration.ofMillis(properties.get("latency-threshold-ms", Long.class, 2_000L)),
+                    properties.get("backoff-ratio", Double.class, 0.9));
+        }
+    }
+
+    @FunctionalInterface
+    interface BlockingCall<T> {
+        T call() throws IOException;
+    }
+}
@@ -0,0 +1,191 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Owns the HTTP clients for all LivePerson upstreams.
+ * <p>
+ * Each {@link Upstream} gets one long-lived JDK {@link HttpClient} (HTTP/2 preferred, connections reused across calls)
+ * and a concurrency cap, all sharing a single executor. Settings are read from {@code lp.http.<upstream>.*}, falling
+ * back to {@code lp.http.*}.
+ * <p>
+ * Every exchange also passes a circuit breaker per upstream domain ({@code lp.resilience.circuit-breaker.*}) and feeds
+ * its latency and status into the upstream's adaptive concurrency limit ({@code lp.resilience.limiter.*}).
+ */
+@Component
+public class LivePersonHttpClients {
+
+    private final ExecutorService executor;
+    private final RestClient.Builder restClientBuilder;
+    private final Map<Upstream, Settings> settings = new EnumMap<>(Upstream.class);
+    private final Map<Upstream, HttpClient> clients = new EnumMap<>(Upstream.class);
+    private final Map<Upstream, InFlightLimiter> limiters = new EnumMap<>(Upstream.class);
+    private final Map<Upstream, CircuitBreaker.Settings> breakerSettings = new EnumMap<>(Upstream.class);
+    private final Map<Upstream, Map<String, CircuitBreaker>> breakers = new EnumMap<>(Upstream.class);
+    private final MeterRegistry meterRegistry;
+
+    public LivePersonHttpClients(RestClient.Builder restClientBuilder, Environment environment, MeterRegistry meterRegistry) {
+        this.restClientBuilder = restClientBuilder;
+        this.meterRegistry = meterRegistry;
+        this.executor = environment.getProperty("lp.http.virtual-threads", Boolean.class, false)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool(Thread.ofPlatform().name("lp-http-", 0).daemon().factory());
+
+        for (Upstream upstream : Upstream.values()) {
+            Settings s = Settings.from(new UpstreamProperties(environment, "lp.http", upstream));
+            InFlightLimiter limiter = new InFlightLimiter(upstream.key(), s.maxConcurrency(),
+                    InFlightLimiter.Adaptive.from(new UpstreamProperties(environment, "lp.resilience.limiter", upstream)));
+            settings.put(upstream, s);
+            limiters.put(upstream, limiter);
+            breakers.put(upstream, new ConcurrentHashMap<>());
+            breakerSettings.put(upstream, CircuitBreaker.Settings.from(
+                    new UpstreamProperties(environment, "lp.resilience.circuit-breaker", upstream)));
+            clients.put(upstream, HttpClient.newBuilder()
+                    .version(s.version())
+                    .connectTimeout(s.connectTimeout())
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .executor(executor)
+                    .build());
+
+            Gauge.builder("lp.http.in.flight", limiter, InFlightLimiter::inFlight)
+                    .tag("upstream", upstream.key())
+                    .description("Requests currently holding a connection slot").register(meterRegistry);
+            Gauge.builder("lp.http.queued", limiter, InFlightLimiter::queued)
+                    .tag("upstream", upstream.key())
+                    .description("Requests waiting for a connection slot").register(meterRegistry);
+            Gauge.builder("lp.http.max.concurrency", limiter, InFlightLimiter::maxConcurrency)
+                    .tag("upstream", upstream.key())
+                    .description("Configured connection slots").register(meterRegistry);
+            Gauge.builder("lp.http.concurrency.limit", limiter, InFlightLimiter::limit)
+                    .tag("upstream", upstream.key())
+                    .description("Current adaptive concurrency limit").register(meterRegistry);
+        }
+    }
+
+    /** Builds a {@link RestClient} that shares the upstream's connection pool, timeouts and concurrency cap. */
+    public RestClient restClient(Upstream upstream) {
+        Settings s = settings.get(upstream);
+        InFlightLimiter limiter = limiters.get(upstream);
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(clients.get(upstream), executor);
+        requestFactory.setReadTimeout(s.readTimeout());
+        return restClientBuilder.clone()
+                // Timed by UpstreamMetrics with bounded tags; the default observation would tag every concrete URL
+                .observationRegistry(ObservationRegistry.NOOP)
+                .requestFactory(requestFactory)
+                .requestInterceptor((request, body, execution) -> limiter.call(s.acquireTimeout(), () -> {
+                    CircuitBreaker breaker = breaker(upstream, request.getURI());
+                    breaker.acquirePermission();
+                    long start = System.nanoTime();
+                    try {
+                        ClientHttpResponse response = execution.execute(request, body);
+                        onResponse(limiter, breaker, response.getStatusCode().value(), start);
+                        return response;
+                    } catch (IOException | RuntimeException e) {
+                        onNoResponse(limiter, breaker, start);
+                        throw e;
+                    }
+                }))
+                .build();
+    }
+
+    /** Scheme and host of an upstream, e.g. {@code https://va.sentinel.liveperson.net}. */
+    public String origin(Upstream upstream, String domain) {
+        return settings.get(upstream).scheme() + "://" + domain;
+    }
+
+    /** Starts a request builder with the upstream's read timeout applied. */
+    public HttpRequest.Builder newRequest(Upstream upstream, URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(settings.get(upstream).readTimeout());
+    }
+
+    /** Sends without blocking; when the upstream is at its concurrency cap the request is queued, not parked. */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(Upstream upstream, HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> bodyHandler) {
+        HttpClient client = clients.get(upstream);
+        InFlightLimiter limiter = limiters.get(upstream);
+        return limiter.callAsync(() -> {
+            CircuitBreaker breaker = breaker(upstream, request.uri());
+            breaker.acquirePermission();
+            long start = System.nanoTime();
+            return client.sendAsync(request, bodyHandler).whenComplete((response, error) -> {
+                if (response != null) {
+                    onResponse(limiter, breaker, response.statusCode(), start);
+                } else {
+                    onNoResponse(limiter, breaker, start);
+                }
+            });
+        });
+    }
+
+    private CircuitBreaker breaker(Upstream upstream, URI uri) {
+        return breakers.get(upstream).computeIfAbsent(uri.getAuthority(), domain -> {
+            CircuitBreaker breaker = new CircuitBreaker(upstream.key() + " (" + domain + ")", breakerSettings.get(upstream));
+            Gauge.builder("lp.resilience.circuit.state", breaker, b -> b.state().ordinal())
+                    .tag("upstream", upstream.key())
+                    .tag("domain", domain)
+                    .description("Circuit breaker state: 0 closed, 1 half-open, 2 open").register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    /** 429 and 503 mean LivePerson is shedding load; together with other 5xx they count against the breaker. */
+    private static void onResponse(InFlightLimiter limiter, CircuitBreaker breaker, int status, long startNanos) {
+        boolean throttled = status == 429 || status == 503;
+        limiter.onSample(startNanos, System.nanoTime() - startNanos, throttled);
+        if (throttled || status >= 500) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    /** Connect failures and timeouts. */
+    private static void onNoResponse(InFlightLimiter limiter, CircuitBreaker breaker, long startNanos) {
+        limiter.onSample(startNanos, Long.MAX_VALUE, true);
+        breaker.onFailure();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record Settings(String scheme,
+                            HttpClient.Version version,
+                            Duration connectTimeout,
+                            Duration readTimeout,
+                            Duration acquireTimeout,
+                            int maxConcurrency) {
+
+        static Settings from(UpstreamProperties properties) {
+            return new Settings(
+                    properties.get("scheme", String.class, "https"),
+                    HttpClient.Version.valueOf(properties.get("version", String.class, "HTTP_2")),
+                    Duration.ofMillis(properties.get("connect-timeout-ms", Long.class, 2_000L)),
+                    Duration.ofMillis(properties.get("read-timeout-ms", Long.class, 10_000L)),
+                    Duration.ofMillis(properties.get("acquire-timeout-ms", Long.class, 5_000L)),
+                    properties.get("max-concurrency", Integer.class, 64));
+        }
+    }
+}
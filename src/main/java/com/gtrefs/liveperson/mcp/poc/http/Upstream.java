@@ -0,0 +1,20 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+/** The LivePerson domains this server talks to; each gets its own tuned HTTP client and concurrency limit. */
+public enum Upstream {
+    SENTINEL("sentinel"),
+    IDP("idp"),
+    MESSAGING("messaging"),
+    MESSAGING_HISTORY("messaging-history");
+
+    private final String key;
+
+    Upstream(String key) {
+        this.key = key;
+    }
+
+    /** Name used in {@code lp.http.<key>.*} properties and as the {@code upstream} metric tag. */
+    public String key() {
+        return key;
+    }
+}
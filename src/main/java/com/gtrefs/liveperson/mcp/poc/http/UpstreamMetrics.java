@@ -0,0 +1,77 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Times every outbound LivePerson call as {@code lp.upstream.requests}, tagged by upstream, operation and HTTP status.
+ * Calls that never got a response (connect failures, timeouts) are tagged {@code status=IO_ERROR}; calls refused
+ * locally by the circuit breaker or concurrency limit are tagged {@code status=REJECTED}.
+ */
+@Component
+public class UpstreamMetrics {
+
+    private static final String IO_ERROR = "IO_ERROR";
+    private static final String REJECTED = "REJECTED";
+
+    private final MeterRegistry meterRegistry;
+
+    public UpstreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> ResponseEntity<T> time(Upstream upstream, String operation, Supplier<ResponseEntity<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = IO_ERROR;
+        try {
+            ResponseEntity<T> response = call.get();
+            status = String.valueOf(response.getStatusCode().value());
+            return response;
+        } catch (RestClientResponseException e) {
+            status = String.valueOf(e.getStatusCode().value());
+            throw e;
+        } catch (UpstreamUnavailableException e) {
+            status = REJECTED;
+            throw e;
+        } finally {
+            sample.stop(timer(upstream, operation, status));
+        }
+    }
+
+    public <T> CompletableFuture<ResponseEntity<T>> timeAsync(Upstream upstream, String operation,
+                                                              Supplier<CompletableFuture<ResponseEntity<T>>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return call.get().whenComplete((response, error) -> {
+            String status = IO_ERROR;
+            if (response != null) {
+                status = String.valueOf(response.getStatusCode().value());
+            } else if (unwrap(error) instanceof RestClientResponseException e) {
+                status = String.valueOf(e.getStatusCode().value());
+            } else if (unwrap(error) instanceof UpstreamUnavailableException) {
+                status = REJECTED;
+            }
+            sample.stop(timer(upstream, operation, status));
+        });
+    }
+
+    private Timer timer(Upstream upstream, String operation, String status) {
+        return Timer.builder("lp.upstream.requests")
+                .description("Outbound LivePerson requests")
+                .tag("upstream", upstream.key())
+                .tag("operation", operation)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
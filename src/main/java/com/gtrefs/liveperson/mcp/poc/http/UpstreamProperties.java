@@ -0,0 +1,22 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import org.springframework.core.env.Environment;
+
+/** Looks up {@code <prefix>.<upstream>.<name>}, falling back to {@code <prefix>.<name>} and then to a default. */
+final class UpstreamProperties {
+
+    private final Environment environment;
+    private final String prefix;
+    private final Upstream upstream;
+
+    UpstreamProperties(Environment environment, String prefix, Upstream upstream) {
+        this.environment = environment;
+        this.prefix = prefix;
+        this.upstream = upstream;
+    }
+
+    <T> T get(String name, Class<T> type, T fallback) {
+        T global = environment.getProperty(prefix + "." + name, type, fallback);
+        return environment.getProperty(prefix + "." + upstream.key() + "." + name, type, global);
+    }
+}
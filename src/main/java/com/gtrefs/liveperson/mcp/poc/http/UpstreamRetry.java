@@ -0,0 +1,132 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries LivePerson calls that failed transiently (429, 502-504, I/O errors and timeouts) with jittered exponential
+ * backoff, honouring {@code Retry-After} up to the backoff cap.
+ * <p>
+ * Only wrap operations that are safe to repeat: reads, PUTs, token requests and ETag-guarded updates. A repeated
+ * conversation create or message publish would duplicate it on LivePerson's side.
+ */
+@Component
+public class UpstreamRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamRetry.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final Backoff backoff;
+
+    public UpstreamRetry(MeterRegistry meterRegistry,
+                         @Value("${lp.resilience.retry.max-attempts:3}") int maxAttempts,
+                         @Value("${lp.resilience.retry.backoff-min-ms:100}") long backoffMinMs,
+                         @Value("${lp.resilience.retry.backoff-max-ms:2000}") long backoffMaxMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = new Backoff(Duration.ofMillis(backoffMinMs), Duration.ofMillis(backoffMaxMs));
+    }
+
+    public <T> T call(Upstream upstream, String operation, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                Duration delay = delay(attempt, e);
+                onRetry(upstream, operation, attempt, delay, e);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> callAsync(Upstream upstream, String operation, Supplier<CompletableFuture<T>> call) {
+        return attemptAsync(upstream, operation, call, 1);
+    }
+
+    private <T> CompletableFuture<T> attemptAsync(Upstream upstream, String operation,
+                                                  Supplier<CompletableFuture<T>> call, int attempt) {
+        return call.get().handle((value, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(value);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (attempt >= maxAttempts || !isTransient(cause)) {
+                return CompletableFuture.<T>failedFuture(cause);
+            }
+            Duration delay = delay(attempt, cause);
+            onRetry(upstream, operation, attempt, delay, cause);
+            return CompletableFuture.supplyAsync(() -> null,
+                            CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> attemptAsync(upstream, operation, call, attempt + 1));
+        }).thenCompose(future -> future);
+    }
+
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof UpstreamUnavailableException) {
+            return false;
+        }
+        if (e instanceof RestClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 429 || status == 502 || status == 503 || status == 504;
+        }
+        // The async client surfaces the JDK's IOExceptions (ConnectException, HttpTimeoutException) unwrapped
+        return e instanceof ResourceAccessException || e instanceof IOException;
+    }
+
+    private Duration delay(int attempt, Throwable e) {
+        if (e instanceof RestClientResponseException response && response.getResponseHeaders() != null) {
+            Duration retryAfter = retryAfter(response.getResponseHeaders());
+            if (retryAfter != null) {
+                return retryAfter.compareTo(backoff.max()) > 0 ? backoff.max() : retryAfter;
+            }
+        }
+        return backoff.delay(attempt);
+    }
+
+    /** Only the delay-seconds form; an HTTP-date falls back to the computed backoff. */
+    private static Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void onRetry(Upstream upstream, String operation, int attempt, Duration delay, Throwable e) {
+        Counter.builder("lp.resilience.retries")
+                .description("Retried LivePerson calls")
+                .tag("upstream", upstream.key())
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+        logger.debug("{} {} attempt {} failed, retrying in {} ms: {}",
+                upstream.key(), operation, attempt, delay.toMillis(), e.getMessage());
+    }
+}
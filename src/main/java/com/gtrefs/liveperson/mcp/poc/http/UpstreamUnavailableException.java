@@ -0,0 +1,14 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Thrown without contacting LivePerson when an upstream is shedding load: its circuit breaker is open or no connection
+ * slot freed up in time. Never retried, since retrying would only add to the pressure.
+ */
+public class UpstreamUnavailableException extends ResourceAccessException {
+
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
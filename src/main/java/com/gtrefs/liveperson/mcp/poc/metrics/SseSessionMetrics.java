@@ -0,0 +1,81 @@
+package com.gtrefs.liveperson.mcp.poc.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes {@code lp.mcp.sse.sessions.active}: SSE streams count from the moment they are opened until the async
+ * request completes, times out or fails.
+ */
+@Component
+public class SseSessionMetrics extends OncePerRequestFilter {
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final String sseEndpoint;
+
+    public SseSessionMetrics(MeterRegistry meterRegistry,
+                             @Value("${spring.ai.mcp.server.sse-endpoint:/sse}") String sseEndpoint) {
+        this.sseEndpoint = sseEndpoint;
+        Gauge.builder("lp.mcp.sse.sessions.active", active, AtomicInteger::get)
+                .description("Open MCP SSE sessions")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !sseEndpoint.equals(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        active.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+        Runnable close = () -> {
+            if (closed.compareAndSet(false, true)) {
+                active.decrementAndGet();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        close.run();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        close.run();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        close.run();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                close.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.gtrefs.liveperson.mcp.poc.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/** Times every MCP tool invocation as {@code lp.tool.calls}, tagged by tool name and outcome. */
+@Component
+public class ToolMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public ToolMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Wraps a sync tool callback. */
+    public ToolCallback instrument(ToolCallback delegate) {
+        String tool = delegate.getToolDefinition().name();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return delegate.getToolDefinition();
+            }
+
+            @Override
+            public ToolMetadata getToolMetadata() {
+                return delegate.getToolMetadata();
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return call(toolInput, null);
+            }
+
+            @Override
+            public String call(String toolInput, ToolContext toolContext) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                String outcome = "error";
+                try {
+                    String result = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+                    outcome = "success";
+                    return result;
+                } finally {
+                    sample.stop(timer(tool, outcome));
+                }
+            }
+        };
+    }
+
+    /** Wraps an async tool handler; a result flagged {@code isError} counts as an error. */
+    public BiFunction<McpAsyncServerExchange, Map<String, Object>, Mono<CallToolResult>> instrument(
+            String tool, BiFunction<McpAsyncServerExchange, Map<String, Object>, Mono<CallToolResult>> delegate) {
+        return (exchange, arguments) -> Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return delegate.apply(exchange, arguments)
+                    .doOnSuccess(result -> sample.stop(timer(tool,
+                            result != null && Boolean.TRUE.equals(result.isError()) ? "error" : "success")))
+                    .doOnError(e -> sample.stop(timer(tool, "error")));
+        });
+    }
+
+    private Timer timer(String tool, String outcome) {
+        return Timer.builder("lp.tool.calls")
+                .description("MCP tool invocations")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,86 @@
+package com.gtrefs.liveperson.mcp.poc.transport;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and checks the {@code Mcp-Session-Id} of the stateless transport. An id is a random UUID followed by its
+ * HMAC-SHA256 under {@code lp.streamable-http.session-secret}, so nothing has to be stored for any node sharing the
+ * secret to tell an issued id from one a client made up. Without a secret each node signs with a random key of its
+ * own, and ids only verify on the node that issued them.
+ */
+public class SessionIds {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecretKey key;
+    private final boolean shared;
+
+    public SessionIds(String base64Secret) {
+        this.shared = base64Secret != null && !base64Secret.isBlank();
+        this.key = new SecretKeySpec(shared ? decodeSecret(base64Secret) : randomSecret(), ALGORITHM);
+    }
+
+    /** Whether ids are signed with a configured secret, which other nodes can share, rather than a random one. */
+    public boolean shared() {
+        return shared;
+    }
+
+    public String issue() {
+        String id = UUID.randomUUID().toString();
+        return id + '.' + ENCODER.encodeToString(sign(id));
+    }
+
+    /** Whether {@code sessionId} was issued with this node's secret. */
+    public boolean verify(String sessionId) {
+        int dot = sessionId.lastIndexOf('.');
+        if (dot <= 0) {
+            return false;
+        }
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(sessionId.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(signature, sign(sessionId.substring(0, dot)));
+    }
+
+    private byte[] sign(String id) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(id.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] randomSecret() {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+
+    private static byte[] decodeSecret(String base64Secret) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(base64Secret.trim());
+        } catch (IllegalArgumentException e) {
+            bytes = new byte[0];
+        }
+        if (bytes.length < 32) {
+            throw new IllegalStateException("lp.streamable-http.session-secret must be a base64-encoded key of at least"
+                    + " 256 bits (e.g. openssl rand -base64 32)");
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,145 @@
+package com.gtrefs.liveperson.mcp.poc.transport;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.modelcontextprotocol.server.transport.WebMvcSseServerTransportProvider;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The WebMvc SSE transport with three additions:
+ * <ul>
+ *     <li>Writes to a session's stream are serialized. The SDK transport writes each response from the thread that
+ *     produced it, and concurrent tool calls on one session otherwise corrupt the stream and lose the session.</li>
+ *     <li>{@link #send} writes to a session's stream from outside the MCP server. SDK clients read responses only from
+ *     the stream and ignore the status of their message POST, so a call refused before it reaches the server has to be
+ *     answered there.</li>
+ *     <li>{@link #sessionFactory()} lends the MCP server's sessions to {@link StatelessStreamableHttpTransport}.</li>
+ * </ul>
+ * The SDK keeps the session id of the message endpoint URL to itself, and creates it inside its SSE handler where no
+ * hook can see it, so it is read from the SDK transport's private field. The SDK version is pinned in the pom for
+ * this, and the server refuses to start if the field is gone.
+ */
+public class SessionTrackingSseTransportProvider extends WebMvcSseServerTransportProvider {
+
+    /** The id the SDK puts into the message endpoint URL; private, and not {@link McpServerSession#getId()}. */
+    private final Field sessionIdField = sessionIdField();
+
+    // Keyed by the URL session id. Weak values: an entry goes away with its session once the transport drops a closed
+    // stream
+    private final Cache<String, McpServerTransport> transports = Caffeine.newBuilder().weakValues().build();
+
+    private volatile McpServerSession.Factory sessionFactory;
+
+    public SessionTrackingSseTransportProvider(ObjectMapper objectMapper, String baseUrl, String messageEndpoint,
+                                               String sseEndpoint) {
+        super(objectMapper, baseUrl, messageEndpoint, sseEndpoint);
+    }
+
+    @Override
+    public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        super.setSessionFactory(transport -> {
+            SerializedTransport serialized = new SerializedTransport(transport);
+            String sessionId = sessionId(transport);
+            if (sessionId != null) {
+                transports.put(sessionId, serialized);
+            }
+            return sessionFactory.create(serialized);
+        });
+    }
+
+    /** Creates sessions of the MCP server; {@code null} until the server has started. */
+    public McpServerSession.Factory sessionFactory() {
+        return sessionFactory;
+    }
+
+    /** Sends a message on the session's SSE stream; {@code false} if the session is unknown. */
+    public boolean send(String sessionId, McpSchema.JSONRPCMessage message) {
+        McpServerTransport transport = transports.getIfPresent(sessionId);
+        if (transport == null) {
+            return false;
+        }
+        try {
+            transport.sendMessage(message).block();
+            return true;
+        } catch (RuntimeException e) {
+            // The stream closed since the lookup
+            return false;
+        }
+    }
+
+    private String sessionId(McpServerTransport transport) {
+        if (!sessionIdField.getDeclaringClass().isInstance(transport)) {
+            return null;
+        }
+        try {
+            return (String) sessionIdField.get(transport);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Field sessionIdField() {
+        try {
+            Field field = Class.forName(WebMvcSseServerTransportProvider.class.getName() + "$WebMvcMcpSessionTransport")
+                    .getDeclaredField("sessionId");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("The MCP SDK's WebMvc SSE transport no longer has the session id field this "
+                    + "server reads; keep the SDK at the version pinned in the pom or adapt "
+                    + SessionTrackingSseTransportProvider.class.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Queues a session's messages: each write starts once the previous one has finished, whether it failed or not, and
+     * its outcome is what the caller's {@link Mono} completes with.
+     */
+    static final class SerializedTransport implements McpServerTransport {
+
+        private final McpServerTransport delegate;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        SerializedTransport(McpServerTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+            return Mono.defer(() -> {
+                CompletableFuture<Void> written;
+                synchronized (this) {
+                    written = tail.handle((ignored, error) -> null)
+                            .thenCompose(ignored -> delegate.sendMessage(message).toFuture());
+                    tail = written;
+                }
+                // A cancelled caller must not cancel the write the next message is queued behind
+                return Mono.fromFuture(written, true);
+            });
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+            return delegate.unmarshalFrom(data, typeRef);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return delegate.closeGracefully();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.gtrefs.liveperson.mcp.poc.transport;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import jakarta.servlet.ServletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * MCP Streamable HTTP without server-side sessions: every JSON-RPC request is a {@code POST} answered with a single
+ * JSON response, so any node behind a round-robin balancer can serve any request and nodes can be drained at will.
+ * <p>
+ * Each request gets a throwaway MCP server session that is initialized on the spot, so the tools, prompts and
+ * listings are exactly those of the SSE transport. Whatever a tool needs beyond its arguments (consumer tokens,
+ * dialog ids, ETags) is cached per node and looked up again from LivePerson on a miss. There is no stream back to
+ * the client: {@code GET} and {@code DELETE} are refused, and server-initiated messages are dropped.
+ * <p>
+ * {@code initialize} returns a signed {@code Mcp-Session-Id} (see {@link SessionIds}). It is never stored or looked up,
+ * so every node accepts every id; it only lets admission control tell clients apart.
+ * <p>
+ * A request carrying an {@code Origin} not listed in {@code lp.streamable-http.allowed-origins} is refused with
+ * {@code 403}, so a web page cannot drive the tools through a browser that can reach the server (DNS rebinding).
+ * MCP clients outside a browser send no {@code Origin} and are not affected.
+ */
+public class StatelessStreamableHttpTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatelessStreamableHttpTransport.class);
+
+    public static final String SESSION_ID_HEADER = "Mcp-Session-Id";
+
+    private static final McpSchema.JSONRPCNotification INITIALIZED = new McpSchema.JSONRPCNotification(
+            McpSchema.JSONRPC_VERSION, McpSchema.METHOD_NOTIFICATION_INITIALIZED, null);
+    private static final McpSchema.ClientCapabilities CLIENT_CAPABILITIES =
+            new McpSchema.ClientCapabilities(null, null, null);
+    private static final McpSchema.Implementation CLIENT_INFO = new McpSchema.Implementation("stateless", "");
+
+    private final ObjectMapper objectMapper;
+    private final SessionTrackingSseTransportProvider sessions;
+    private final SessionIds sessionIds;
+    private final String endpoint;
+    private final Set<String> allowedOrigins;
+
+    public StatelessStreamableHttpTransport(ObjectMapper objectMapper, SessionTrackingSseTransportProvider sessions,
+                                            SessionIds sessionIds, String endpoint, Set<String> allowedOrigins) {
+        this.objectMapper = objectMapper;
+        this.sessions = sessions;
+        this.sessionIds = sessionIds;
+        this.endpoint = endpoint;
+        this.allowedOrigins = Set.copyOf(allowedOrigins);
+    }
+
+    public RouterFunction<ServerResponse> getRouterFunction() {
+        return RouterFunctions.route()
+                .POST(endpoint, this::handlePost)
+                // No server-to-client stream and no session to end
+                .GET(endpoint, request -> ServerResponse.status(HttpStatus.METHOD_NOT_ALLOWED).build())
+                .DELETE(endpoint, request -> ServerResponse.status(HttpStatus.METHOD_NOT_ALLOWED).build())
+                .build();
+    }
+
+    private ServerResponse handlePost(ServerRequest request) throws ServletException {
+        String origin = request.headers().firstHeader(HttpHeaders.ORIGIN);
+        if (origin != null && !allowedOrigins.contains(origin)) {
+            logger.debug("Refused request from origin {}", origin);
+            return error(HttpStatus.FORBIDDEN, null, McpSchema.ErrorCodes.INVALID_REQUEST, "Origin not allowed");
+        }
+        McpServerSession.Factory sessionFactory = sessions.sessionFactory();
+        if (sessionFactory == null) {
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+
+        McpSchema.JSONRPCMessage message;
+        try {
+            message = McpSchema.deserializeJsonRpcMessage(objectMapper, request.body(String.class));
+        } catch (IOException | RuntimeException e) {
+            // Also covers batches, which the stateless endpoint does not accept
+            return error(HttpStatus.BAD_REQUEST, null, McpSchema.ErrorCodes.PARSE_ERROR, "Invalid JSON-RPC message");
+        }
+        if (!(message instanceof McpSchema.JSONRPCRequest call)) {
+            // Notifications and responses need no answer, and there is no session they could change
+            return ServerResponse.accepted().build();
+        }
+
+        ResponseCapture capture = new ResponseCapture(objectMapper);
+        McpServerSession session = sessionFactory.create(capture);
+        boolean initialize = McpSchema.METHOD_INITIALIZE.equals(call.method());
+        if (!initialize) {
+            session.init(CLIENT_CAPABILITIES, CLIENT_INFO);
+            session.handle(INITIALIZED).block();
+        }
+        session.handle(call).block();
+
+        McpSchema.JSONRPCResponse response = capture.response;
+        if (response == null) {
+            logger.warn("No response to {} {}", call.method(), call.id());
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, call.id(), McpSchema.ErrorCodes.INTERNAL_ERROR,
+                    "No response");
+        }
+        ServerResponse.BodyBuilder ok = ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+        if (initialize) {
+            ok.header(SESSION_ID_HEADER, sessionIds.issue());
+        }
+        return ok.body(response);
+    }
+
+    private static ServerResponse error(HttpStatus status, Object id, int code, String message) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON)
+                .body(new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, id, null,
+                        new McpSchema.JSONRPCResponse.JSONRPCError(code, message, null)));
+    }
+
+    /** The transport of a one-request session: keeps the response, drops anything the server sends on its own. */
+    private static final class ResponseCapture implements McpServerTransport {
+
+        private final ObjectMapper objectMapper;
+        private volatile McpSchema.JSONRPCResponse response;
+
+        ResponseCapture(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+            if (message instanceof McpSchema.JSONRPCResponse answer) {
+                response = answer;
+            }
+            return Mono.empty();
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+            return objectMapper.convertValue(data, typeRef);
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gtrefs.liveperson.mcp.poc.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.server.autoconfigure.McpServerProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.Set;
+
+/**
+ * Replaces the auto-configured SSE transport with {@link SessionTrackingSseTransportProvider}. The auto-configuration
+ * backs off as a whole, so its routes are registered here too. The stateless Streamable HTTP endpoint is served
+ * alongside.
+ */
+@Configuration
+public class TransportConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransportConfiguration.class);
+
+    @Bean
+    public SessionTrackingSseTransportProvider sseTransportProvider(ObjectMapper objectMapper,
+                                                                    McpServerProperties properties) {
+        return new SessionTrackingSseTransportProvider(objectMapper, properties.getBaseUrl(),
+                properties.getSseMessageEndpoint(), properties.getSseEndpoint());
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> mvcMcpRouterFunction(SessionTrackingSseTransportProvider sseTransportProvider) {
+        return sseTransportProvider.getRouterFunction();
+    }
+
+    @Bean
+    public SessionIds streamableSessionIds(@Value("${lp.streamable-http.session-secret:}") String secret) {
+        return new SessionIds(secret);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "lp.streamable-http", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public StatelessStreamableHttpTransport streamableHttpTransport(
+            ObjectMapper objectMapper,
+            SessionTrackingSseTransportProvider sseTransportProvider,
+            SessionIds sessionIds,
+            @Value("${lp.streamable-http.endpoint:/mcp}") String endpoint,
+            @Value("${lp.streamable-http.allowed-origins:}") Set<String> allowedOrigins) {
+        if (!sessionIds.shared()) {
+            logger.warn("lp.streamable-http.session-secret is not set, so each node signs Mcp-Session-Id with its own "
+                    + "key. Behind a round-robin balancer, ids from other nodes do not verify and those clients share "
+                    + "the admission limits of one session per address, the balancer's unless "
+                    + "server.forward-headers-strategy=native. Give every node the same "
+                    + "LP_STREAMABLE_HTTP_SESSION_SECRET.");
+        }
+        return new StatelessStreamableHttpTransport(objectMapper, sseTransportProvider, sessionIds, endpoint,
+                allowedOrigins);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "lp.streamable-http", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public RouterFunction<ServerResponse> streamableHttpRouterFunction(StatelessStreamableHttpTransport transport) {
+        return transport.getRouterFunction();
+    }
+}
@@ -0,0 +1,60 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsumerProfileCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConsumerProfileCache profiles = new ConsumerProfileCache(meterRegistry, 100, 3600);
+
+    @Test
+    void aProfileIsCurrentOnlyOnceLivePersonAcceptedIt() {
+        Map<String, Object> profile = Map.of("firstName", "Ada", "lastName", "Lovelace");
+
+        // Asking does not record anything: a PUT that then fails leaves the consumer unknown
+        assertThat(profiles.isCurrent("consumer", profile)).isFalse();
+        assertThat(profiles.isCurrent("consumer", profile)).isFalse();
+
+        profiles.remember("consumer", profile);
+
+        assertThat(profiles.isCurrent("consumer", profile)).isTrue();
+        assertThat(profiles.isCurrent("consumer", Map.of("firstName", "Ada", "lastName", "Byron"))).isFalse();
+        assertThat(profiles.isCurrent("other", profile)).isFalse();
+        assertThat(puts("sent")).isEqualTo(1);
+        assertThat(puts("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void forgettingAConsumerSendsItsProfileAgain() {
+        Map<String, Object> profile = Map.of("firstName", "Ada");
+        profiles.remember("consumer", profile);
+
+        profiles.forget("consumer");
+
+        assertThat(profiles.isCurrent("consumer", profile)).isFalse();
+    }
+
+    @Test
+    void ignoresTheOrderOfProfileFields() {
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("firstName", "Ada");
+        ordered.put("lastName", "Lovelace");
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("lastName", "Lovelace");
+        reversed.put("firstName", "Ada");
+        profiles.remember("consumer", ordered);
+
+        assertThat(profiles.isCurrent("consumer", reversed)).isTrue();
+    }
+
+    private double puts(String outcome) {
+        return meterRegistry.find("lp.consumer.profile.puts").tag("outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,188 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.gtrefs.liveperson.mcp.poc.ConversationHistory.Page;
+import com.gtrefs.liveperson.mcp.poc.LivePersonResponse.MessagesResponse;
+import com.gtrefs.liveperson.mcp.poc.LivePersonResponse.MessagesResponse.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConversationHistoryTest {
+
+    private static final long NEVER = 60_000;
+    private static final long ALWAYS = 0;
+
+    private final List<Message> upstream = new CopyOnWriteArrayList<>();
+    private final List<Fetch> fetches = new CopyOnWriteArrayList<>();
+    private final LivePersonRestClient lp = mock(LivePersonRestClient.class);
+
+    ConversationHistoryTest() {
+        when(lp.getMessages(anyString(), anyString(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(2);
+            int limit = invocation.getArgument(3);
+            fetches.add(new Fetch(invocation.getArgument(0), after, limit));
+            return new MessagesResponse(upstream.stream().filter(m -> m.sequence() > after).limit(limit).toList());
+        });
+    }
+
+    @Test
+    void servesARepeatedReadFromTheCache() {
+        publish(3);
+        ConversationHistory history = history(200, NEVER);
+
+        Page first = history.read(lp, "account/consumer", "consumer", "conv", -1, 10);
+        Page second = history.read(lp, "account/consumer", "consumer", "conv", -1, 10);
+
+        assertThat(sequences(first)).containsExactly(1L, 2L, 3L);
+        assertThat(second).isEqualTo(first);
+        assertThat(first.nextCursor()).isEqualTo(3);
+        assertThat(first.hasMore()).isFalse();
+        assertThat(fetches).hasSize(1);
+    }
+
+    @Test
+    void asksOnlyForMessagesNewerThanTheCachedOnes() {
+        publish(3);
+        ConversationHistory history = history(200, ALWAYS);
+        history.read(lp, "account/consumer", "consumer", "conv", -1, 10);
+        publish(2);
+
+        Page page = history.read(lp, "account/consumer", "consumer", "conv", 1, 10);
+
+        assertThat(sequences(page)).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(fetches).containsExactly(new Fetch("consumer", -1, 10), new Fetch("consumer", 3, 10));
+    }
+
+    @Test
+    void resyncsAfterMarkStaleEvenInsideTheRefreshInterval() {
+        publish(2);
+        ConversationHistory history = history(200, NEVER);
+        history.read(lp, "account/consumer", "consumer", "conv", -1, 10);
+        publish(1);
+
+        assertThat(sequences(history.read(lp, "account/consumer", "consumer", "conv", 2, 10))).isEmpty();
+        history.markStale("account/consumer", "conv");
+
+        assertThat(sequences(history.read(lp, "account/consumer", "consumer", "conv", 2, 10))).containsExactly(3L);
+    }
+
+    @Test
+    void pagesThroughALongConversationIncrementally() {
+        publish(5);
+        ConversationHistory history = history(200, NEVER);
+
+        Page first = history.read(lp, "account/consumer", "consumer", "conv", -1, 2);
+        Page second = history.read(lp, "account/consumer", "consumer", "conv", first.nextCursor(), 2);
+        Page third = history.read(lp, "account/consumer", "consumer", "conv", second.nextCursor(), 2);
+
+        assertThat(sequences(first)).containsExactly(1L, 2L);
+        assertThat(first.hasMore()).isTrue();
+        assertThat(sequences(second)).containsExactly(3L, 4L);
+        assertThat(second.hasMore()).isTrue();
+        assertThat(sequences(third)).containsExactly(5L);
+        assertThat(third.hasMore()).isFalse();
+        // A short page means the window is complete, so an incomplete one is continued regardless of the interval
+        assertThat(fetches).extracting(Fetch::after).containsExactly(-1L, 2L, 4L);
+        // Re-reading from the start is answered from the merged window
+        assertThat(sequences(history.read(lp, "account/consumer", "consumer", "conv", -1, 5)))
+                .containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(fetches).hasSize(3);
+    }
+
+    @Test
+    void readsBelowTheWindowGoStraightToLivePerson() {
+        publish(5);
+        ConversationHistory history = history(3, NEVER);
+        history.read(lp, "account/consumer", "consumer", "conv", -1, 3);
+        history.read(lp, "account/consumer", "consumer", "conv", 3, 3);
+        fetches.clear();
+
+        Page page = history.read(lp, "account/consumer", "consumer", "conv", -1, 3);
+
+        assertThat(sequences(page)).containsExactly(1L, 2L, 3L);
+        assertThat(page.hasMore()).isTrue();
+        assertThat(fetches).containsExactly(new Fetch("consumer", -1, 3));
+        // The window itself kept the newest messages
+        fetches.clear();
+        assertThat(sequences(history.read(lp, "account/consumer", "consumer", "conv", 3, 3))).containsExactly(4L, 5L);
+        assertThat(fetches).isEmpty();
+    }
+
+    @Test
+    void restartsTheWindowAtACursorAheadOfIt() {
+        publish(6);
+        ConversationHistory history = history(200, NEVER);
+        history.read(lp, "account/consumer", "consumer", "conv", -1, 2);
+
+        Page page = history.read(lp, "account/consumer", "consumer", "conv", 4, 10);
+
+        assertThat(sequences(page)).containsExactly(5L, 6L);
+        assertThat(fetches).extracting(Fetch::after).containsExactly(-1L, 4L);
+    }
+
+    @Test
+    void keepsTranscriptsPerConsumer() {
+        publish(2);
+        ConversationHistory history = history(200, NEVER);
+
+        history.read(lp, "account/first", "first", "conv", -1, 10);
+        history.read(lp, "account/second", "second", "conv", -1, 10);
+
+        assertThat(fetches).extracting(Fetch::consumerId).containsExactly("first", "second");
+    }
+
+    @Test
+    void concurrentReadersShareOneUpstreamRequest() throws Exception {
+        publish(2);
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            fetches.add(new Fetch(invocation.getArgument(0), invocation.getArgument(2), invocation.getArgument(3)));
+            fetching.countDown();
+            release.await();
+            return new MessagesResponse(List.copyOf(upstream));
+        }).when(lp).getMessages(anyString(), anyString(), anyLong(), anyInt());
+        ConversationHistory history = history(200, NEVER);
+
+        CompletableFuture<Page> first = CompletableFuture.supplyAsync(
+                () -> history.read(lp, "account/consumer", "consumer", "conv", -1, 10));
+        assertThat(fetching.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Page> second = CompletableFuture.supplyAsync(
+                () -> history.read(lp, "account/consumer", "consumer", "conv", -1, 10));
+        release.countDown();
+
+        assertThat(sequences(first.get(10, TimeUnit.SECONDS))).containsExactly(1L, 2L);
+        assertThat(sequences(second.get(10, TimeUnit.SECONDS))).containsExactly(1L, 2L);
+        assertThat(fetches).hasSize(1);
+    }
+
+    private static ConversationHistory history(int maxMessages, long refreshMs) {
+        return new ConversationHistory(new SimpleMeterRegistry(), 100, maxMessages, 600, refreshMs);
+    }
+
+    private void publish(int count) {
+        for (int i = 0; i < count; i++) {
+            long sequence = upstream.size() + 1;
+            upstream.add(new Message(sequence, "m" + sequence, "CONSUMER", "text " + sequence, null));
+        }
+    }
+
+    private static List<Long> sequences(Page page) {
+        return page.messages().stream().map(Message::sequence).toList();
+    }
+
+    private record Fetch(String consumerId, long after, int limit) {}
+}
@@ -0,0 +1,59 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.gtrefs.liveperson.mcp.poc.LivePersonResponse.ConversationResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationRegistryTest {
+
+    private final ConversationRegistry registry = new ConversationRegistry(new SimpleMeterRegistry(), 100, 600);
+
+    @Test
+    void keepsTheMainDialogAndTheLatestEtag() {
+        registry.record("account/consumer", new ConversationResponse("conv", null,
+                List.of(new ConversationResponse.Dialog("dialog-1"), new ConversationResponse.Dialog("dialog-2"))), etag("\"1\""));
+        registry.recordPublish("account/consumer", "conv", "dialog-1", etag("\"2\""));
+
+        assertThat(registry.dialogId("account/consumer", "conv")).isEqualTo("dialog-1");
+        assertThat(registry.etag("account/consumer", "conv")).isEqualTo("\"2\"");
+    }
+
+    @Test
+    void aResponseWithoutAnEtagKeepsTheOneSeenBefore() {
+        registry.record("account/consumer", new ConversationResponse(null, "conv", List.of()), etag("\"1\""));
+
+        registry.recordPublish("account/consumer", "conv", "dialog", new HttpHeaders());
+
+        assertThat(registry.etag("account/consumer", "conv")).isEqualTo("\"1\"");
+        assertThat(registry.dialogId("account/consumer", "conv")).isEqualTo("dialog");
+    }
+
+    @Test
+    void entriesBelongToTheConsumerThatSawThem() {
+        registry.recordPublish("account/consumer", "conv", "dialog", etag("\"1\""));
+
+        assertThat(registry.etag("account/other", "conv")).isNull();
+        assertThat(registry.dialogId("other-account/consumer", "conv")).isNull();
+    }
+
+    @Test
+    void forgetsAClosedConversation() {
+        registry.recordPublish("account/consumer", "conv", "dialog", etag("\"1\""));
+
+        registry.forget("account/consumer", "conv");
+
+        assertThat(registry.etag("account/consumer", "conv")).isNull();
+        assertThat(registry.dialogId("account/consumer", "conv")).isNull();
+    }
+
+    private static HttpHeaders etag(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(value);
+        return headers;
+    }
+}
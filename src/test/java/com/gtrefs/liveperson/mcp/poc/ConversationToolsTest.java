@@ -0,0 +1,120 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.gtrefs.liveperson.mcp.poc.ConversationTools.CloseConversationArgs;
+import com.gtrefs.liveperson.mcp.poc.LivePersonResponse.ConversationResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationToolsTest {
+
+    private static final String CONSUMER = "account/consumer";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LivePersonRestClient lp = mock(LivePersonRestClient.class);
+    private final ConversationRegistry conversations = new ConversationRegistry(meterRegistry, 100, 600);
+    private final ConversationTools tools;
+
+    ConversationToolsTest() {
+        Accounts accounts = mock(Accounts.class);
+        when(accounts.get(null)).thenReturn(new Accounts.Account("account", lp, null));
+        tools = new ConversationTools(accounts, conversations, new ConversationHistory(meterRegistry, 100, 200, 600, 1_000),
+                new IdempotencyCache(meterRegistry, 100, 600), new ConsumerProfileCache(meterRegistry, 100, 600), 2, 10);
+    }
+
+    @Test
+    void closesWithTheKnownEtagWithoutReadingTheConversation() {
+        known("\"3\"");
+
+        assertThat(close().status()).isEqualTo("CLOSED");
+
+        verify(lp).closeConversation("consumer", "conv", "\"3\"");
+        verify(lp, never()).getConversationEntity(anyString(), anyString());
+    }
+
+    @Test
+    void readsTheEtagFirstWhenNoneIsKnown() {
+        when(lp.getConversationEntity("consumer", "conv")).thenReturn(conversation("\"5\""));
+
+        close();
+
+        var order = inOrder(lp);
+        order.verify(lp).getConversationEntity("consumer", "conv");
+        order.verify(lp).closeConversation("consumer", "conv", "\"5\"");
+    }
+
+    @Test
+    void rereadsAndRetriesOnceWhenTheKnownEtagIsStale() {
+        known("\"3\"");
+        when(lp.closeConversation("consumer", "conv", "\"3\"")).thenThrow(status(HttpStatus.PRECONDITION_FAILED));
+        when(lp.getConversationEntity("consumer", "conv")).thenReturn(conversation("\"4\""));
+
+        assertThat(close().status()).isEqualTo("CLOSED");
+
+        var order = inOrder(lp);
+        order.verify(lp).closeConversation("consumer", "conv", "\"3\"");
+        order.verify(lp).getConversationEntity("consumer", "conv");
+        order.verify(lp).closeConversation("consumer", "conv", "\"4\"");
+    }
+
+    @Test
+    void givesUpWhenTheRetryIsRejectedToo() {
+        known("\"3\"");
+        when(lp.closeConversation("consumer", "conv", "\"3\"")).thenThrow(status(HttpStatus.PRECONDITION_FAILED));
+        when(lp.getConversationEntity("consumer", "conv")).thenReturn(conversation("\"4\""));
+        when(lp.closeConversation("consumer", "conv", "\"4\"")).thenThrow(status(HttpStatus.PRECONDITION_FAILED));
+
+        assertThatThrownBy(this::close).isInstanceOfSatisfying(HttpClientErrorException.class,
+                e -> assertThat(e.getStatusCode().value()).isEqualTo(412));
+
+        verify(lp, times(1)).getConversationEntity("consumer", "conv");
+    }
+
+    @Test
+    void otherClientErrorsAreNotRetried() {
+        known("\"3\"");
+        when(lp.closeConversation("consumer", "conv", "\"3\"")).thenThrow(status(HttpStatus.NOT_FOUND));
+
+        assertThatThrownBy(this::close).isInstanceOf(HttpClientErrorException.NotFound.class);
+
+        verify(lp, never()).getConversationEntity(anyString(), anyString());
+    }
+
+    private ConversationTools.CloseConversationResult close() {
+        return tools.closeConversation(new CloseConversationArgs("consumer", "conv", null, null));
+    }
+
+    private void known(String etag) {
+        conversations.record(CONSUMER, new ConversationResponse("conv", null, List.of()), etagHeaders(etag));
+    }
+
+    private static ResponseEntity<ConversationResponse> conversation(String etag) {
+        return ResponseEntity.ok().headers(etagHeaders(etag)).body(new ConversationResponse("conv", null, List.of()));
+    }
+
+    private static HttpHeaders etagHeaders(String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        return headers;
+    }
+
+    private static HttpClientErrorException status(HttpStatus status) {
+        return HttpClientErrorException.create(status, status.getReasonPhrase(), new HttpHeaders(), new byte[0], null);
+    }
+}
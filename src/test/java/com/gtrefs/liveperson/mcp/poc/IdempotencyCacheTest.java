@@ -0,0 +1,94 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyCacheTest {
+
+    private final IdempotencyCache cache = new IdempotencyCache(new SimpleMeterRegistry(), 100, 600);
+
+    @Test
+    void replaysTheResultOfAKeyedCall() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = cache.execute("send_message", "consumer", "key", Map.of("text", "hi"),
+                () -> "result-" + calls.incrementAndGet());
+        String second = cache.execute("send_message", "consumer", "key", Map.of("text", "hi"),
+                () -> "result-" + calls.incrementAndGet());
+
+        assertThat(first).isEqualTo("result-1");
+        assertThat(second).isEqualTo("result-1");
+    }
+
+    @Test
+    void rejectsAKeyReusedWithOtherArguments() {
+        cache.execute("send_message", "consumer", "key", Map.of("text", "hi"), () -> "result");
+
+        assertThatThrownBy(() -> cache.execute("send_message", "consumer", "key", Map.of("text", "bye"), () -> "other"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void forgetsAnAsyncCallThatThrowsBeforeReturningAFuture() throws Exception {
+        CompletableFuture<String> failed = cache.executeAsync("create_conversation", "consumer", "key", "args",
+                () -> {
+                    throw new NullPointerException("firstName");
+                });
+
+        assertThat(failed).isCompletedExceptionally();
+        // A retry with the same key runs again instead of waiting on the failed attempt forever
+        CompletableFuture<String> retried = cache.executeAsync("create_conversation", "consumer", "key", "args",
+                () -> CompletableFuture.completedFuture("conversation"));
+        assertThat(retried.get(1, TimeUnit.SECONDS)).isEqualTo("conversation");
+    }
+
+    @Test
+    void forgetsAnAsyncCallThatReturnsNoFuture() throws Exception {
+        CompletableFuture<String> failed = cache.executeAsync("create_conversation", "consumer", "key", "args",
+                () -> null);
+
+        assertThat(failed).isCompletedExceptionally();
+        CompletableFuture<String> retried = cache.executeAsync("create_conversation", "consumer", "key", "args",
+                () -> CompletableFuture.completedFuture("conversation"));
+        assertThat(retried.get(1, TimeUnit.SECONDS)).isEqualTo("conversation");
+    }
+
+    @Test
+    void forgetsAnAsyncCallThatFails() throws Exception {
+        CompletableFuture<String> failed = cache.executeAsync("send_message", "consumer", "key", "args",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("upstream")));
+
+        assertThat(failed).isCompletedExceptionally();
+        CompletableFuture<String> retried = cache.executeAsync("send_message", "consumer", "key", "args",
+                () -> CompletableFuture.completedFuture("sent"));
+        assertThat(retried.get(1, TimeUnit.SECONDS)).isEqualTo("sent");
+    }
+
+    @Test
+    void coalescesAsyncCallsWhileTheFirstRuns() throws Exception {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> first = cache.executeAsync("send_message", "consumer", "key", "args", () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = cache.executeAsync("send_message", "consumer", "key", "args", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("duplicate");
+        });
+        upstream.complete("sent");
+
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("sent");
+        assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo("sent");
+        assertThat(calls).hasValue(1);
+    }
+}
@@ -0,0 +1,30 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import com.gtrefs.liveperson.mcp.poc.LivePersonResponse.ConversationSearchResponse.ConversationHistoryRecord;
+import com.gtrefs.liveperson.mcp.poc.LivePersonResponse.ConversationSearchResponse.Participant;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LivePersonResponseTest {
+
+    @Test
+    void matchesAConsumerOfTheConversation() {
+        ConversationHistoryRecord conversation = new ConversationHistoryRecord(List.of(),
+                List.of(new Participant("other"), new Participant("consumer")));
+
+        assertThat(conversation.hasConsumer("consumer")).isTrue();
+        assertThat(conversation.hasConsumer("stranger")).isFalse();
+    }
+
+    @Test
+    void anUnknownConsumerIdMatchesNoParticipant() {
+        ConversationHistoryRecord conversation = new ConversationHistoryRecord(List.of(),
+                List.of(new Participant(null)));
+
+        assertThat(conversation.hasConsumer(null)).isFalse();
+        assertThat(new ConversationHistoryRecord(List.of(), null).hasConsumer("consumer")).isFalse();
+    }
+}
@@ -0,0 +1,41 @@
+package com.gtrefs.liveperson.mcp.poc;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessagingUrisTest {
+
+    private final MessagingUris uris = new MessagingUris("https://va.msg.liveperson.net");
+
+    @Test
+    void buildsTheMessagingPaths() {
+        assertThat(uris.consumer("lp-1")).isEqualTo(URI.create("https://va.msg.liveperson.net/messaging/v1/consumers/lp-1"));
+        assertThat(uris.consumerConversations("lp-1"))
+                .isEqualTo(URI.create("https://va.msg.liveperson.net/messaging/v1/consumers/lp-1/conversations"));
+        assertThat(uris.conversation("conv-1"))
+                .isEqualTo(URI.create("https://va.msg.liveperson.net/messaging/v1/conversations/conv-1"));
+        assertThat(uris.messages("conv-1", "dialog-1")).isEqualTo(
+                URI.create("https://va.msg.liveperson.net/messaging/v1/conversations/conv-1/dialogs/dialog-1/messages"));
+    }
+
+    @Test
+    void encodesIdsAsSinglePathSegments() {
+        URI uri = uris.messages("conv/../1", "dialog 1?x");
+
+        assertThat(uri.getRawPath()).isEqualTo("/messaging/v1/conversations/conv%2F..%2F1/dialogs/dialog%201%3Fx/messages");
+        assertThat(uri.getRawQuery()).isNull();
+    }
+
+    @Test
+    void requestIdsAreRandomVersion4Uuids() {
+        UUID id = UUID.fromString(MessagingUris.requestId());
+
+        assertThat(id.version()).isEqualTo(4);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(MessagingUris.requestId()).isNotEqualTo(MessagingUris.requestId());
+    }
+}
@@ -0,0 +1,272 @@
+package com.gtrefs.liveperson.mcp.poc.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FairSchedulerTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(10);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void admitsImmediatelyWhenIdle() throws InterruptedException {
+        FairScheduler scheduler = scheduler(2, 2, 10, 10, LONG_WAIT);
+
+        try (FairScheduler.Permit first = scheduler.acquire("a", 1);
+             FairScheduler.Permit second = scheduler.acquire("b", 1)) {
+            assertThat(running()).isEqualTo(2);
+            assertThat(queued()).isZero();
+        }
+        assertThat(running()).isZero();
+    }
+
+    @Test
+    void interleavesSessionsByFinishTag() throws Exception {
+        FairScheduler scheduler = scheduler(1, 10, 10, 10, LONG_WAIT);
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+        List<String> admitted = new CopyOnWriteArrayList<>();
+
+        // A floods the queue before B shows up; B must still run second, not last
+        List<Thread> waiters = List.of(
+                waitInQueue(scheduler, "a", "a1", admitted, 1),
+                waitInQueue(scheduler, "a", "a2", admitted, 2),
+                waitInQueue(scheduler, "a", "a3", admitted, 3),
+                waitInQueue(scheduler, "b", "b1", admitted, 4));
+        holder.close();
+        for (Thread waiter : waiters) {
+            waiter.join(LONG_WAIT.toMillis());
+        }
+
+        assertThat(admitted).containsExactly("a1", "b1", "a2", "a3");
+        assertThat(running()).isZero();
+    }
+
+    @Test
+    void heavierCallsPushTheirSessionBack() throws Exception {
+        FairScheduler scheduler = scheduler(1, 10, 10, 10, LONG_WAIT);
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+        List<String> admitted = new CopyOnWriteArrayList<>();
+
+        List<Thread> waiters = List.of(
+                waitInQueue(scheduler, "a", "a1", 5, admitted, 1),
+                waitInQueue(scheduler, "b", "b1", 1, admitted, 2),
+                waitInQueue(scheduler, "b", "b2", 1, admitted, 3));
+        holder.close();
+        for (Thread waiter : waiters) {
+            waiter.join(LONG_WAIT.toMillis());
+        }
+
+        assertThat(admitted).containsExactly("b1", "b2", "a1");
+    }
+
+    @Test
+    void keepsSessionsWithinTheirOwnLimit() throws Exception {
+        FairScheduler scheduler = scheduler(2, 1, 10, 10, LONG_WAIT);
+        FairScheduler.Permit first = scheduler.acquire("a", 1);
+        CompletableFuture<FairScheduler.Permit> second = acquireAsync(scheduler, "a");
+        awaitTrue(() -> queued() == 1);
+
+        // The global slot left over goes to another session, not to a's second call
+        try (FairScheduler.Permit other = scheduler.acquire("b", 1)) {
+            assertThat(second).isNotDone();
+        }
+        first.close();
+        second.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS).close();
+        assertThat(running()).isZero();
+    }
+
+    @Test
+    void rejectsWhenTheSessionQueueIsFull() throws Exception {
+        FairScheduler scheduler = scheduler(1, 1, 10, 1, LONG_WAIT);
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+        CompletableFuture<FairScheduler.Permit> queuedCall = acquireAsync(scheduler, "a");
+        awaitTrue(() -> queued() == 1);
+
+        assertThatThrownBy(() -> scheduler.acquire("a", 1))
+                .isInstanceOfSatisfying(FairScheduler.Rejection.class,
+                        rejection -> assertThat(rejection.reason()).isEqualTo(FairScheduler.Rejection.Reason.SESSION_QUEUE_FULL));
+        assertThat(rejections("session_queue_full")).isEqualTo(1);
+
+        holder.close();
+        queuedCall.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS).close();
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() throws Exception {
+        FairScheduler scheduler = scheduler(1, 1, 1, 10, LONG_WAIT);
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+        CompletableFuture<FairScheduler.Permit> queuedCall = acquireAsync(scheduler, "a");
+        awaitTrue(() -> queued() == 1);
+
+        assertThatThrownBy(() -> scheduler.acquire("b", 1))
+                .isInstanceOfSatisfying(FairScheduler.Rejection.class,
+                        rejection -> assertThat(rejection.reason()).isEqualTo(FairScheduler.Rejection.Reason.QUEUE_FULL));
+        assertThat(rejections("queue_full")).isEqualTo(1);
+
+        holder.close();
+        queuedCall.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS).close();
+    }
+
+    @Test
+    void dropsCallsThatWaitPastTheDeadline() throws InterruptedException {
+        Duration maxWait = Duration.ofMillis(50);
+        FairScheduler scheduler = scheduler(1, 1, 10, 10, maxWait);
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+
+        assertThatThrownBy(() -> scheduler.acquire("a", 1))
+                .isInstanceOfSatisfying(FairScheduler.Rejection.class, rejection -> {
+                    assertThat(rejection.reason()).isEqualTo(FairScheduler.Rejection.Reason.DEADLINE);
+                    assertThat(rejection.retryAfter()).isEqualTo(maxWait);
+                });
+        assertThat(queued()).isZero();
+        assertThat(rejections("deadline")).isEqualTo(1);
+
+        // The expired call must not take the slot once it frees up
+        holder.close();
+        assertThat(running()).isZero();
+    }
+
+    @Test
+    void leavesTheQueueWhenInterrupted() throws Exception {
+        FairScheduler scheduler = scheduler(1, 1, 10, 10, LONG_WAIT);
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread waiter = Thread.ofPlatform().start(() -> {
+            try {
+                scheduler.acquire("a", 1).close();
+                failure.complete(null);
+            } catch (Throwable e) {
+                failure.complete(e);
+            }
+        });
+        awaitTrue(() -> queued() == 1);
+
+        waiter.interrupt();
+
+        assertThat(failure.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS)).isInstanceOf(InterruptedException.class);
+        assertThat(queued()).isZero();
+        holder.close();
+        assertThat(running()).isZero();
+    }
+
+    @Test
+    void runsACallAdmittedWhileTimingOut() throws Exception {
+        FairScheduler scheduler = scheduler(1, 1, 10, 10, Duration.ofMillis(500));
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+        CompletableFuture<FairScheduler.Permit> admitted = new CompletableFuture<>();
+        Thread waiter = Thread.ofPlatform().start(() -> {
+            try {
+                admitted.complete(scheduler.acquire("a", 1));
+            } catch (Throwable e) {
+                admitted.completeExceptionally(e);
+            }
+        });
+        awaitTrue(() -> queued() == 1);
+
+        // Holding the scheduler's monitor lets the wait expire before the waiter can leave the queue
+        synchronized (scheduler) {
+            awaitTrue(() -> waiter.getState() == Thread.State.BLOCKED);
+            holder.close();
+        }
+
+        admitted.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS).close();
+        assertThat(rejections("deadline")).isZero();
+        assertThat(running()).isZero();
+    }
+
+    @Test
+    void keepsTheInterruptOfACallAdmittedWhileInterrupted() throws Exception {
+        FairScheduler scheduler = scheduler(1, 1, 10, 10, LONG_WAIT);
+        FairScheduler.Permit holder = scheduler.acquire("holder", 1);
+        CompletableFuture<Boolean> interruptedAfterAdmission = new CompletableFuture<>();
+        Thread waiter = Thread.ofPlatform().start(() -> {
+            try (FairScheduler.Permit permit = scheduler.acquire("a", 1)) {
+                interruptedAfterAdmission.complete(Thread.currentThread().isInterrupted());
+            } catch (Throwable e) {
+                interruptedAfterAdmission.completeExceptionally(e);
+            }
+        });
+        awaitTrue(() -> queued() == 1);
+
+        synchronized (scheduler) {
+            waiter.interrupt();
+            awaitTrue(() -> waiter.getState() == Thread.State.BLOCKED);
+            holder.close();
+        }
+
+        assertThat(interruptedAfterAdmission.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+        waiter.join(LONG_WAIT.toMillis());
+        assertThat(running()).isZero();
+    }
+
+    private FairScheduler scheduler(int maxConcurrent, int maxConcurrentPerSession, int maxQueued,
+                                    int maxQueuedPerSession, Duration maxWait) {
+        return new FairScheduler(meterRegistry, maxConcurrent, maxConcurrentPerSession, maxQueued, maxQueuedPerSession,
+                maxWait);
+    }
+
+    private Thread waitInQueue(FairScheduler scheduler, String sessionId, String label, List<String> admitted,
+                               int expectedQueued) {
+        return waitInQueue(scheduler, sessionId, label, 1, admitted, expectedQueued);
+    }
+
+    /** Starts a call and returns once it is queued, so that calls enter the queue in the order given. */
+    private Thread waitInQueue(FairScheduler scheduler, String sessionId, String label, int cost, List<String> admitted,
+                               int expectedQueued) {
+        Thread thread = Thread.ofPlatform().name(label).start(() -> {
+            try (FairScheduler.Permit permit = scheduler.acquire(sessionId, cost)) {
+                admitted.add(label);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        awaitTrue(() -> queued() == expectedQueued);
+        return thread;
+    }
+
+    private CompletableFuture<FairScheduler.Permit> acquireAsync(FairScheduler scheduler, String sessionId) {
+        CompletableFuture<FairScheduler.Permit> permit = new CompletableFuture<>();
+        Thread.ofPlatform().start(() -> {
+            try {
+                permit.complete(scheduler.acquire(sessionId, 1));
+            } catch (Throwable e) {
+                permit.completeExceptionally(e);
+            }
+        });
+        return permit;
+    }
+
+    private int queued() {
+        return (int) meterRegistry.get("lp.admission.queued").gauge().value();
+    }
+
+    private int running() {
+        return (int) meterRegistry.get("lp.admission.running").gauge().value();
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("lp.admission.rejections").tag("reason", reason).counter().count();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + LONG_WAIT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within " + LONG_WAIT);
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
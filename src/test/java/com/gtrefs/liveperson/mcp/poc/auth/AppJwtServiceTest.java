@@ -0,0 +1,194 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.Upstream;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AppJwtServiceTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(10);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockingQueue<Answer> answers = new LinkedBlockingQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<AppJwtService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(AppJwtService::shutdown);
+    }
+
+    @Test
+    void concurrentCallersShareOneSentinelRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        answers.add(new Answer(HttpStatus.OK, "app-jwt", 3600, release));
+        AppJwtService service = service(300, 1_000);
+
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            callers.add(service.getAppJwtAsync());
+        }
+        release.countDown();
+
+        for (CompletableFuture<String> caller : callers) {
+            assertThat(caller.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("app-jwt");
+        }
+        assertThat(service.getAppJwt()).isEqualTo("app-jwt");
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void failsFastWhileBackingOffAfterAFailedRequest() {
+        answers.add(new Answer(HttpStatus.INTERNAL_SERVER_ERROR, null, 0, null));
+        AppJwtService service = service(300, 60_000);
+
+        assertThatThrownBy(service::getAppJwt).isInstanceOf(HttpServerErrorException.class);
+        assertThatThrownBy(service::getAppJwt).isInstanceOf(HttpServerErrorException.class);
+
+        assertThat(requests).hasValue(1);
+        assertThat(counter("lp.app.jwt.refreshes", "failure")).isEqualTo(1);
+    }
+
+    @Test
+    void asksSentinelAtMostOncePerMinimumIntervalForTokensExpiringOnArrival() {
+        answers.add(new Answer(HttpStatus.OK, "expired", 0, null));
+        AppJwtService service = service(300, 60_000);
+
+        // The waiting caller still gets what Sentinel issued; later ones do not trigger a request each
+        assertThat(service.getAppJwt()).isEqualTo("expired");
+        assertThatThrownBy(service::getAppJwt)
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("expired before it could be renewed");
+        assertThatThrownBy(service::getAppJwt).isInstanceOf(UpstreamUnavailableException.class);
+
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void renewsInTheBackgroundWhileServingTheCurrentToken() throws Exception {
+        // Valid for 4 s with a skew of 3 s: renewed after 1 s
+        answers.add(new Answer(HttpStatus.OK, "first", 4, null));
+        CountDownLatch release = new CountDownLatch(1);
+        answers.add(new Answer(HttpStatus.OK, "second", 3600, release));
+        AppJwtService service = service(3, 10);
+
+        assertThat(service.getAppJwt()).isEqualTo("first");
+        awaitRequests(2);
+
+        assertThat(service.getAppJwt()).isEqualTo("first");
+        assertThat(service.getAppJwt()).isEqualTo("first");
+        assertThat(counter("lp.app.jwt.stale.serves", null)).isEqualTo(1);
+
+        release.countDown();
+        long deadline = System.nanoTime() + LONG_WAIT.toNanos();
+        while (!service.getAppJwt().equals("second")) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        assertThat(counter("lp.app.jwt.waits", null)).isEqualTo(1);
+        assertThat(requests).hasValue(2);
+    }
+
+    @Test
+    void closeRemovesOnlyItsOwnMeters() {
+        AppJwtService released = service("released", 300, 1_000);
+        service("other", 300, 1_000);
+
+        released.close();
+
+        assertThat(meterRegistry.find("lp.app.jwt.waits").tag("account", "released").meters()).isEmpty();
+        assertThat(meterRegistry.find("lp.app.jwt.waits").tag("account", "other").meters()).hasSize(1);
+        // A re-created account registers its meters afresh
+        service("released", 300, 1_000);
+        assertThat(meterRegistry.find("lp.app.jwt.waits").tag("account", "released").meters()).hasSize(1);
+    }
+
+    private AppJwtService service(int renewSkewSeconds, long backoffMinMs) {
+        return service("account", renewSkewSeconds, backoffMinMs);
+    }
+
+    private AppJwtService service(String accountId, int renewSkewSeconds, long backoffMinMs) {
+        RestClient sentinel = RestClient.builder()
+                .requestInterceptor((request, body, execution) -> answer())
+                .build();
+        LivePersonHttpClients httpClients = mock(LivePersonHttpClients.class);
+        when(httpClients.restClient(Upstream.SENTINEL)).thenReturn(sentinel);
+        when(httpClients.origin(eq(Upstream.SENTINEL), anyString())).thenReturn("https://sentinel.test");
+        AppJwtService service = new AppJwtService(httpClients, new UpstreamMetrics(meterRegistry),
+                new UpstreamRetry(meterRegistry, 1, 1, 1), new InMemoryTokenStore(), meterRegistry, accountId,
+                "sentinel.test", "client", "secret", renewSkewSeconds, backoffMinMs, 60_000);
+        services.add(service);
+        return service;
+    }
+
+    private MockClientHttpResponse answer() {
+        requests.incrementAndGet();
+        Answer answer = answers.poll();
+        if (answer == null) {
+            throw new AssertionError("Unexpected Sentinel request");
+        }
+        if (answer.release() != null) {
+            try {
+                answer.release().await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+        String json = answer.token() == null ? "{}"
+                : "{\"access_token\":\"" + answer.token() + "\",\"expires_in\":" + answer.expiresIn() + "}";
+        MockClientHttpResponse response = new MockClientHttpResponse(json.getBytes(StandardCharsets.UTF_8), answer.status());
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response;
+    }
+
+    private void awaitRequests(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + LONG_WAIT.toNanos();
+        while (requests.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Expected " + expected + " Sentinel requests within " + LONG_WAIT);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private double counter(String name, String outcome) {
+        var search = meterRegistry.find(name).tag("account", "account");
+        if (outcome != null) {
+            search = search.tag("outcome", outcome);
+        }
+        return search.counter().count();
+    }
+
+    /** What the fake Sentinel answers next; it holds the response until {@code release} opens, if given. */
+    private record Answer(HttpStatus status, String token, int expiresIn, CountDownLatch release) {}
+}
@@ -0,0 +1,165 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService.ConsumerIdentity;
+import com.gtrefs.liveperson.mcp.poc.auth.ConsumerJwsService.JwtClaims;
+import com.gtrefs.liveperson.mcp.poc.http.LivePersonHttpClients;
+import com.gtrefs.liveperson.mcp.poc.http.Upstream;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamMetrics;
+import com.gtrefs.liveperson.mcp.poc.http.UpstreamRetry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConsumerJwsServiceTest {
+
+    private static final long TTL_SECONDS = 3600;
+    private static final long SKEW_SECONDS = 60;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicReference<Long> issuedExp = new AtomicReference<>();
+    private final Map<String, TokenStore.StoredToken> stored = new ConcurrentHashMap<>();
+
+    @Test
+    void readsTheConsumerIdAndExpiryWithoutVerifying() {
+        Instant exp = Instant.ofEpochSecond(1_900_000_000L);
+
+        assertThat(ConsumerJwsService.extractClaims(jws("lp-1", exp.getEpochSecond())))
+                .isEqualTo(new JwtClaims("lp-1", exp));
+        assertThat(ConsumerJwsService.extractClaims(jws("lp-1", null))).isEqualTo(new JwtClaims("lp-1", null));
+        assertThat(ConsumerJwsService.extractClaims("opaque")).isEqualTo(new JwtClaims(null, null));
+    }
+
+    @Test
+    void cachesAnIdentityUntilShortlyBeforeItsExp() {
+        issuedExp.set(Instant.now().plus(Duration.ofMinutes(30)).getEpochSecond());
+        ConsumerJwsService service = service(TTL_SECONDS);
+
+        ConsumerIdentity first = service.getConsumerJws("consumer");
+        ConsumerIdentity second = service.getConsumerJws("consumer");
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.lpConsumerId()).isEqualTo("lp-consumer");
+        assertThat(first.expiresAt()).isEqualTo(Instant.ofEpochSecond(issuedExp.get()));
+        assertThat(requests).hasValue(1);
+        assertThat(stored.get("consumer:account:consumer").expiresAt()).isEqualTo(first.expiresAt());
+    }
+
+    @Test
+    void requestsAgainOnceTheExpIsWithinTheSkew() {
+        // Expires before the skew: usable for the call that fetched it, never served from the cache
+        issuedExp.set(Instant.now().plusSeconds(SKEW_SECONDS / 2).getEpochSecond());
+        ConsumerJwsService service = service(TTL_SECONDS);
+
+        service.getConsumerJws("consumer");
+        service.getConsumerJws("consumer");
+
+        assertThat(requests).hasValue(2);
+    }
+
+    @Test
+    void expiresAfterTheTtlWhenItComesBeforeTheExp() {
+        issuedExp.set(Instant.now().plus(Duration.ofHours(1)).getEpochSecond());
+        ConsumerJwsService service = service(0);
+
+        service.getConsumerJws("consumer");
+        service.getConsumerJws("consumer");
+
+        assertThat(requests).hasValue(2);
+    }
+
+    @Test
+    void fallsBackToTheTtlWithoutAnExp() {
+        ConsumerJwsService service = service(TTL_SECONDS);
+
+        ConsumerIdentity identity = service.getConsumerJws("consumer");
+        service.getConsumerJws("consumer");
+
+        assertThat(identity.expiresAt()).isNull();
+        assertThat(requests).hasValue(1);
+        // Persisted with the TTL as its expiry, so the store can still purge it
+        assertThat(stored.get("consumer:account:consumer").expiresAt())
+                .isBetween(Instant.now().plusSeconds(TTL_SECONDS - 60), Instant.now().plusSeconds(TTL_SECONDS));
+    }
+
+    @Test
+    void restoresIdentitiesWithTheExpOfTheirToken() {
+        Instant farAway = Instant.now().plus(Duration.ofDays(1));
+        String valid = jws("lp-valid", Instant.now().plus(Duration.ofMinutes(30)).getEpochSecond());
+        String expiring = jws("lp-expiring", Instant.now().plusSeconds(SKEW_SECONDS / 2).getEpochSecond());
+        stored.put("consumer:account:valid", new TokenStore.StoredToken(valid, farAway));
+        stored.put("consumer:account:expiring", new TokenStore.StoredToken(expiring, farAway));
+        stored.put("consumer:other-account:valid", new TokenStore.StoredToken(valid, farAway));
+        issuedExp.set(Instant.now().plus(Duration.ofMinutes(30)).getEpochSecond());
+        ConsumerJwsService service = service(TTL_SECONDS);
+
+        assertThat(service.getConsumerJws("valid").token()).isEqualTo(valid);
+        assertThat(requests).hasValue(0);
+        // The stored expiry is ignored in favour of the token's own exp, which is too close
+        assertThat(service.getConsumerJws("expiring").lpConsumerId()).isEqualTo("lp-consumer");
+        assertThat(requests).hasValue(1);
+    }
+
+    private ConsumerJwsService service(long ttlSeconds) {
+        RestClient idp = RestClient.builder()
+                .requestInterceptor((request, body, execution) -> {
+                    requests.incrementAndGet();
+                    String json = "{\"token\":\"" + jws("lp-consumer", issuedExp.get()) + "\"}";
+                    MockClientHttpResponse response = new MockClientHttpResponse(json.getBytes(StandardCharsets.UTF_8),
+                            HttpStatus.OK);
+                    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    return response;
+                })
+                .build();
+        LivePersonHttpClients httpClients = mock(LivePersonHttpClients.class);
+        when(httpClients.restClient(Upstream.IDP)).thenReturn(idp);
+        when(httpClients.origin(eq(Upstream.IDP), anyString())).thenReturn("https://idp.test");
+        AppJwtService appJwtService = mock(AppJwtService.class);
+        when(appJwtService.getAppJwt()).thenReturn("app-jwt");
+        return new ConsumerJwsService(httpClients, new UpstreamMetrics(meterRegistry), new UpstreamRetry(meterRegistry, 1, 1, 1),
+                meterRegistry, "account", "idp.test", 100, ttlSeconds, SKEW_SECONDS, appJwtService, new MapTokenStore());
+    }
+
+    private static String jws(String lpConsumerId, Long exp) {
+        String claims = "{\"lp_consumer_id\":\"" + lpConsumerId + "\"" + (exp != null ? ",\"exp\":" + exp : "") + "}";
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + '.'
+                + encoder.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    private final class MapTokenStore implements TokenStore {
+        @Override
+        public Map<String, StoredToken> load() {
+            return Map.copyOf(stored);
+        }
+
+        @Override
+        public void put(String key, StoredToken token) {
+            stored.put(key, token);
+        }
+
+        @Override
+        public void remove(String key) {
+            stored.remove(key);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileTokenStoreTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString(new byte[16]);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysPutsAndRemovesAfterARestart() throws Exception {
+        Path file = directory.resolve("tokens.bin");
+        FileTokenStore store = open(file, KEY);
+        store.put("app", token("app-jwt", Duration.ofHours(1)));
+        store.put("consumer", token("consumer-jws", Duration.ofHours(1)));
+        store.put("app", token("app-jwt-2", Duration.ofHours(1)));
+        store.remove("consumer");
+        store.shutdown();
+
+        FileTokenStore restarted = open(file, KEY);
+
+        assertThat(restarted.load()).containsOnlyKeys("app");
+        assertThat(restarted.load().get("app").value()).isEqualTo("app-jwt-2");
+        restarted.shutdown();
+    }
+
+    @Test
+    void dropsExpiredTokens() throws Exception {
+        Path file = directory.resolve("tokens.bin");
+        FileTokenStore store = open(file, KEY);
+        store.put("expired", token("old", Duration.ofSeconds(-1)));
+        store.put("live", token("new", Duration.ofHours(1)));
+        store.shutdown();
+
+        FileTokenStore restarted = open(file, KEY);
+
+        assertThat(restarted.load()).containsOnlyKeys("live");
+        restarted.shutdown();
+    }
+
+    @Test
+    void encryptsTokensAtRest() throws Exception {
+        Path file = directory.resolve("tokens.bin");
+        FileTokenStore store = open(file, KEY);
+        store.put("consumer-42", token("secret-token-value", Duration.ofHours(1)));
+        store.shutdown();
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+
+        assertThat(content).doesNotContain("secret-token-value").doesNotContain("consumer-42");
+    }
+
+    @Test
+    void startsColdWithAnotherKey() throws Exception {
+        Path file = directory.resolve("tokens.bin");
+        FileTokenStore store = open(file, KEY);
+        store.put("app", token("app-jwt", Duration.ofHours(1)));
+        store.shutdown();
+
+        FileTokenStore rotated = open(file, OTHER_KEY);
+
+        assertThat(rotated.load()).isEmpty();
+        rotated.shutdown();
+    }
+
+    @Test
+    void compactsTheLogOnStartup() throws Exception {
+        Path file = directory.resolve("tokens.bin");
+        FileTokenStore store = open(file, KEY);
+        for (int i = 0; i < 100; i++) {
+            store.put("app", token("app-jwt-" + i, Duration.ofHours(1)));
+        }
+        store.put("expired", token("old", Duration.ofSeconds(-1)));
+        store.shutdown();
+        long logged = Files.size(file);
+
+        FileTokenStore restarted = open(file, KEY);
+        restarted.shutdown();
+
+        // One record left: the latest value of the one live key
+        assertThat(Files.size(file)).isLessThan(logged / 50);
+        FileTokenStore reopened = open(file, KEY);
+        assertThat(reopened.load().get("app").value()).isEqualTo("app-jwt-99");
+        reopened.shutdown();
+    }
+
+    @Test
+    void keepsWorkingWithoutPersistenceWhenTheFileCannotBeWritten() throws Exception {
+        Path notADirectory = Files.createFile(directory.resolve("occupied"));
+
+        FileTokenStore store = open(notADirectory.resolve("tokens.bin"), KEY);
+        store.put("app", token("app-jwt", Duration.ofHours(1)));
+        store.remove("app");
+
+        assertThat(store.load()).isEmpty();
+        store.shutdown();
+    }
+
+    private static FileTokenStore open(Path file, String key) {
+        return new FileTokenStore(new SimpleMeterRegistry(), file.toString(), key, 10_000);
+    }
+
+    private static TokenStore.StoredToken token(String value, Duration validFor) {
+        return new TokenStore.StoredToken(value, Instant.now().plus(validFor));
+    }
+}
@@ -0,0 +1,19 @@
+package com.gtrefs.liveperson.mcp.poc.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryTokenStoreTest {
+
+    @Test
+    void keepsNoSecondCopyOfTheTokens() {
+        InMemoryTokenStore store = new InMemoryTokenStore();
+
+        store.put("app", new TokenStore.StoredToken("app-jwt", Instant.now().plusSeconds(3600)));
+
+        assertThat(store.load()).isEmpty();
+    }
+}
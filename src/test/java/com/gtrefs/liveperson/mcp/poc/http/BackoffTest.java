@@ -0,0 +1,28 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BackoffTest {
+
+    private final Backoff backoff = new Backoff(Duration.ofMillis(100), Duration.ofMillis(1_000));
+
+    @Test
+    void doublesPerAttemptWithJitterOnTheUpperHalf() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.delay(1).toMillis()).isBetween(50L, 100L);
+            assertThat(backoff.delay(2).toMillis()).isBetween(100L, 200L);
+            assertThat(backoff.delay(3).toMillis()).isBetween(200L, 400L);
+        }
+    }
+
+    @Test
+    void staysAtTheCapHoweverManyAttemptsFailed() {
+        for (int attempt : new int[] {5, 21, 64, Integer.MAX_VALUE}) {
+            assertThat(backoff.delay(attempt).toMillis()).isBetween(500L, 1_000L);
+        }
+    }
+}
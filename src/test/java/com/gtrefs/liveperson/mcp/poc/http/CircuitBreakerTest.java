@@ -0,0 +1,105 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    @Test
+    void staysClosedBelowTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            call(breaker, false);
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void opensAtTheFailureRateThreshold() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+        call(breaker, true);
+        call(breaker, true);
+        call(breaker, false);
+        call(breaker, false);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(breaker::acquirePermission)
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("is open");
+    }
+
+    @Test
+    void forgetsFailuresThatLeftTheWindow() {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+
+        call(breaker, false);
+        call(breaker, true);
+        call(breaker, true);
+        call(breaker, true);
+        // The fifth call pushes the first failure out of the window, leaving 1 failure in the last 4 calls
+        call(breaker, false);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void closesAfterAllTrialCallsSucceed() {
+        CircuitBreaker breaker = opened(Duration.ZERO);
+
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThatThrownBy(breaker::acquirePermission)
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("half-open");
+
+        breaker.onSuccess();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onSuccess();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // The window starts empty again, so earlier failures do not count against the closed breaker
+        call(breaker, false);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void reopensWhenATrialCallFails() {
+        CircuitBreaker breaker = opened(Duration.ZERO);
+
+        breaker.acquirePermission();
+        breaker.onFailure();
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private static CircuitBreaker opened(Duration openDuration) {
+        CircuitBreaker breaker = breaker(openDuration);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, false);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    /** Opens at 50% failures over the last 4 calls and allows 2 trial calls when half-open. */
+    private static CircuitBreaker breaker(Duration openDuration) {
+        return new CircuitBreaker("test", new CircuitBreaker.Settings(50, 4, 4, openDuration, 2));
+    }
+
+    private static void call(CircuitBreaker breaker, boolean succeeded) {
+        breaker.acquirePermission();
+        if (succeeded) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.gtrefs.liveperson.mcp.poc.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InFlightLimiterTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(10);
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+
+    @Test
+    void blockingCallsGiveUpAfterTheAcquireTimeout() throws Exception {
+        InFlightLimiter limiter = new InFlightLimiter("test", 1, null);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        limiter.callAsync(() -> running);
+
+        assertThatThrownBy(() -> limiter.call(Duration.ofMillis(20), () -> "late"))
+                .isInstanceOf(UpstreamUnavailableException.class)
+                .hasMessageContaining("No free connection slot for test");
+        assertThat(limiter.queued()).isZero();
+
+        running.complete("done");
+        assertThat(limiter.call(Duration.ofMillis(20), () -> "next")).isEqualTo("next");
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void blockingCallsRunOnceASlotFrees() throws Exception {
+        InFlightLimiter limiter = new InFlightLimiter("test", 1, null);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        limiter.callAsync(() -> running);
+
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.call(LONG_WAIT, () -> "admitted");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitQueued(limiter, 1);
+        running.complete("done");
+
+        assertThat(waiter.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("admitted");
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void asyncCallsQueueInsteadOfBlocking() throws Exception {
+        InFlightLimiter limiter = new InFlightLimiter("test", 1, null);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+
+        CompletableFuture<String> firstResult = limiter.callAsync(() -> first);
+        CompletableFuture<String> secondResult = limiter.callAsync(() -> {
+            secondStarted.set(true);
+            return CompletableFuture.completedFuture("second");
+        });
+
+        assertThat(secondStarted).isFalse();
+        assertThat(limiter.queued()).isEqualTo(1);
+
+        first.complete("first");
+        assertThat(firstResult.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("first");
+        assertThat(secondResult.get(LONG_WAIT.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("second");
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.queued()).isZero();
+    }
+
+    @Test
+    void asyncCallsThatFailToStartReleaseTheirSlot() {
+        InFlightLimiter limiter = new InFlightLimiter("test", 1, null);
+
+        CompletableFuture<String> result = limiter.callAsync(() -> {
+            throw new IllegalArgumentException("bad request");
+        });
+
+        assertThat(result).isCompletedExceptionally();
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void fixedLimitIgnoresSamples() {
+        InFlightLimiter limiter = new InFlightLimiter("test", 8, null);
+
+        sample(limiter, SLOW, true);
+
+        assertThat(limiter.limit()).isEqualTo(8);
+    }
+
+    @Test
+    void backsOffMultiplicativelyDownToTheMinimum() {
+        InFlightLimiter limiter = adaptive();
+
+        sample(limiter, SLOW, false);
+        assertThat(limiter.limit()).isEqualTo(4);
+        sample(limiter, FAST, true);
+        assertThat(limiter.limit()).isEqualTo(2);
+        sample(limiter, FAST, true);
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void backsOffOncePerRoundTrip() {
+        InFlightLimiter limiter = adaptive();
+        // Sent together before the first decrease, e.g. a burst against an upstream that just slowed down
+        long sent = System.nanoTime() - 1;
+
+        for (int i = 0; i < 30; i++) {
+            limiter.onSample(sent, SLOW, false);
+        }
+        assertThat(limiter.limit()).isEqualTo(4);
+
+        // A request sent after the decrease reflects the reduced limit
+        sample(limiter, SLOW, false);
+        assertThat(limiter.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void growsAdditivelyUpToTheMaximum() {
+        InFlightLimiter limiter = adaptive();
+        sample(limiter, FAST, true);
+        sample(limiter, FAST, true);
+
+        // 2 -> 2.5 -> 2.9 -> 3.24: about one slot per limit's worth of good samples
+        sample(limiter, FAST, false);
+        sample(limiter, FAST, false);
+        assertThat(limiter.limit()).isEqualTo(2);
+        sample(limiter, FAST, false);
+        assertThat(limiter.limit()).isEqualTo(3);
+
+        for (int i = 0; i < 100; i++) {
+            sample(limiter, FAST, false);
+        }
+        assertThat(limiter.limit()).isEqualTo(8);
+    }
+
+    @Test
+    void growingLimitStartsQueuedCalls() {
+        InFlightLimiter limiter = adaptive();
+        sample(limiter, FAST, true);
+        sample(limiter, FAST, true);
+        limiter.callAsync(CompletableFuture::new);
+        limiter.callAsync(CompletableFuture::new);
+        AtomicBoolean queuedStarted = new AtomicBoolean();
+        limiter.callAsync(() -> {
+            queuedStarted.set(true);
+            return new CompletableFuture<>();
+        });
+        assertThat(queuedStarted).isFalse();
+
+        for (int i = 0; i < 3; i++) {
+            sample(limiter, FAST, false);
+        }
+
+        assertThat(queuedStarted).isTrue();
+        assertThat(limiter.inFlight()).isEqualTo(3);
+    }
+
+    /** A sample of a request sent now, i.e. after any earlier decrease. */
+    private static void sample(InFlightLimiter limiter, long latencyNanos, boolean overloaded) {
+        limiter.onSample(System.nanoTime(), latencyNanos, overloaded);
+    }
+
+    /** Adapts between 2 and 8 slots, halving on samples slower than 100 ms or overloaded. */
+    private static InFlightLimiter adaptive() {
+        return new InFlightLimiter("test", 8, new InFlightLimiter.Adaptive(2, Duration.ofMillis(100), 0.5));
+    }
+
+    private static void awaitQueued(InFlightLimiter limiter, int expected) {
+        long deadline = System.nanoTime() + LONG_WAIT.toNanos();
+        while (limiter.queued() != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Expected " + expected + " queued calls within " + LONG_WAIT);
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
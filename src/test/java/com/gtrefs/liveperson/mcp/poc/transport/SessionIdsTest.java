@@ -0,0 +1,49 @@
+package com.gtrefs.liveperson.mcp.poc.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionIdsTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    @Test
+    void verifiesIdsIssuedWithTheSameSecret() {
+        String sessionId = new SessionIds(SECRET).issue();
+
+        assertThat(new SessionIds(SECRET).verify(sessionId)).isTrue();
+        assertThat(new SessionIds(SECRET).shared()).isTrue();
+    }
+
+    @Test
+    void rejectsIdsTheClientMadeUp() {
+        SessionIds sessionIds = new SessionIds(SECRET);
+        String issued = sessionIds.issue();
+        String otherId = UUID.randomUUID() + issued.substring(issued.indexOf('.'));
+
+        assertThat(sessionIds.verify(UUID.randomUUID().toString())).isFalse();
+        assertThat(sessionIds.verify(otherId)).isFalse();
+        assertThat(sessionIds.verify(issued + "x")).isFalse();
+        assertThat(sessionIds.verify("." + issued)).isFalse();
+    }
+
+    @Test
+    void randomSecretsOnlyVerifyOnTheIssuingNode() {
+        SessionIds node = new SessionIds("");
+
+        assertThat(node.verify(node.issue())).isTrue();
+        assertThat(new SessionIds("").verify(node.issue())).isFalse();
+        assertThat(node.shared()).isFalse();
+    }
+
+    @Test
+    void refusesShortSecrets() {
+        assertThatThrownBy(() -> new SessionIds(Base64.getEncoder().encodeToString(new byte[16])))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
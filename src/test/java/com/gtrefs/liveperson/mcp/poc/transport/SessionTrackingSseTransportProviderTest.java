@@ -0,0 +1,14 @@
+package com.gtrefs.liveperson.mcp.poc.transport;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionTrackingSseTransportProviderTest {
+
+    /** Fails on an SDK upgrade that moves the field, before the server would at startup. */
+    @Test
+    void findsTheSessionIdFieldOfThePinnedSdk() {
+        assertThat(SessionTrackingSseTransportProvider.sessionIdField().getType()).isEqualTo(String.class);
+    }
+}
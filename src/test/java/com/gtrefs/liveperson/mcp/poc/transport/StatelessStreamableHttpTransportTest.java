@@ -0,0 +1,54 @@
+package com.gtrefs.liveperson.mcp.poc.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatelessStreamableHttpTransportTest {
+
+    private static final String PING = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // No MCP server is attached, so a request that passes the Origin check is answered with 503
+    private final StatelessStreamableHttpTransport transport = new StatelessStreamableHttpTransport(objectMapper,
+            new SessionTrackingSseTransportProvider(objectMapper, "", "/mcp/message", "/sse"),
+            new SessionIds(""), "/mcp", Set.of("https://app.example.com"));
+
+    @Test
+    void refusesOriginsThatAreNotAllowed() throws Exception {
+        assertThat(post("https://evil.example.com").statusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void acceptsAllowedOrigins() throws Exception {
+        assertThat(post("https://app.example.com").statusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void acceptsClientsThatSendNoOrigin() throws Exception {
+        assertThat(post(null).statusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private ServerResponse post(String origin) throws Exception {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/mcp");
+        servletRequest.setContentType("application/json");
+        servletRequest.setContent(PING.getBytes(StandardCharsets.UTF_8));
+        if (origin != null) {
+            servletRequest.addHeader("Origin", origin);
+        }
+        ServerRequest request = ServerRequest.create(servletRequest,
+                List.of(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter(objectMapper)));
+        return transport.getRouterFunction().route(request).orElseThrow().handle(request);
+    }
+}